@@ -0,0 +1,100 @@
+package de.bwaldvogel.liblinear;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the scalar kernels with the kernels of the Vector API. The jmh task adds the module
+ * {@code jdk.incubator.vector} on Java 17 and later; without it (or on Java 11), both variants use the scalar kernels.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DenseKernelsBenchmark {
+
+    public enum Kernels {
+        SCALAR, VECTOR
+    }
+
+    @Param({"1000", "100000"})
+    private int n;
+
+    @Param
+    private Kernels kernels;
+
+    private DenseKernels impl;
+    private double[]     x;
+    private double[]     y;
+    private double[]     z;
+
+    @Setup
+    public void setUp() {
+        impl = kernels == Kernels.SCALAR ? DenseKernels.SCALAR : DenseKernels.INSTANCE;
+        Random random = new Random(12345);
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+            y[i] = 1 + random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public double dot() {
+        return impl.dot(n, x, y);
+    }
+
+    @Benchmark
+    public double nrm2() {
+        return impl.nrm2(n, x);
+    }
+
+    @Benchmark
+    public double[] axpy() {
+        impl.axpy(n, 1e-9, x, z);
+        return z;
+    }
+
+    @Benchmark
+    public double[] scal() {
+        // alternating factors keep the values bounded
+        impl.scal(n, 2, z);
+        impl.scal(n, 0.5, z);
+        return z;
+    }
+
+    @Benchmark
+    public double[] divide() {
+        impl.divide(n, x, y, z);
+        return z;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(DenseKernelsBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(opt).run();
+    }
+
+}
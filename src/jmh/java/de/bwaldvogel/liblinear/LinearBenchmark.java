@@ -2,6 +2,7 @@ package de.bwaldvogel.liblinear;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -39,6 +40,14 @@ public class LinearBenchmark {
         }
     }
 
+    @Benchmark
+    public void readCompactProblem(DatasetParameters datasetParameters) throws Exception {
+        Path trainingFile = getTrainingFile(datasetParameters.dataset);
+        try (InputStream inputStream = getInputStream(trainingFile)) {
+            Train.readCompactProblem(inputStream, Charset.defaultCharset(), -1);
+        }
+    }
+
     @Benchmark
     public void train(BenchmarkParameters benchmarkParameters) {
         Linear.disableDebugOutput();
@@ -0,0 +1,139 @@
+package de.bwaldvogel.liblinear;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the latency of single predictions of {@link Linear} with the ones of a shared {@link Predictor}.
+ * The jmh task runs with the GC profiler, whose {@code gc.alloc.rate.norm} is the number of bytes allocated per prediction.
+ */
+@Fork(1)
+@Threads(4)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class PredictorBenchmark {
+
+    private static final int NUM_ROWS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class ModelParameters {
+
+        @Param({"2", "10"})
+        private int numClasses;
+
+        @Param({"20", "200"})
+        private int numFeaturesPerRow;
+
+        private Model model;
+
+        private Predictor predictor;
+
+        private Feature[][] rows;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(12345);
+            int numFeatures = 20 * numFeaturesPerRow;
+            int nr_w = numClasses == 2 ? 1 : numClasses;
+
+            model = new Model();
+            model.solverType = SolverType.L2R_LR;
+            model.nr_class = numClasses;
+            model.nr_feature = numFeatures;
+            model.bias = -1;
+            model.label = new int[numClasses];
+            for (int i = 0; i < numClasses; i++)
+                model.label[i] = i;
+            model.w = new double[numFeatures * nr_w];
+            for (int i = 0; i < model.w.length; i++)
+                model.w[i] = random.nextGaussian();
+            predictor = new Predictor(model);
+
+            rows = new Feature[NUM_ROWS][];
+            for (int r = 0; r < NUM_ROWS; r++) {
+                Feature[] row = new Feature[numFeaturesPerRow];
+                int index = 0;
+                for (int k = 0; k < row.length; k++) {
+                    index += 1 + random.nextInt(19);
+                    row[k] = new FeatureNode(index, random.nextDouble());
+                }
+                rows[r] = row;
+            }
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int row;
+
+        private double[] values;
+
+        @Setup
+        public void setUp(ModelParameters modelParameters) {
+            values = new double[modelParameters.numClasses];
+        }
+
+        Feature[] nextRow(ModelParameters modelParameters) {
+            row = (row + 1) % NUM_ROWS;
+            return modelParameters.rows[row];
+        }
+
+    }
+
+    @Benchmark
+    public double linearPredict(ModelParameters modelParameters, ThreadState state) {
+        return Linear.predict(modelParameters.model, state.nextRow(modelParameters));
+    }
+
+    @Benchmark
+    public double predictorPredict(ModelParameters modelParameters, ThreadState state) {
+        return modelParameters.predictor.predict(state.nextRow(modelParameters));
+    }
+
+    @Benchmark
+    public double predictorPredictValues(ModelParameters modelParameters, ThreadState state) {
+        return modelParameters.predictor.predictValues(state.nextRow(modelParameters), state.values);
+    }
+
+    @Benchmark
+    public double linearPredictProbability(ModelParameters modelParameters, ThreadState state) {
+        return Linear.predictProbability(modelParameters.model, state.nextRow(modelParameters), state.values);
+    }
+
+    @Benchmark
+    public double predictorPredictProbability(ModelParameters modelParameters, ThreadState state) {
+        return modelParameters.predictor.predictProbability(state.nextRow(modelParameters), state.values);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(PredictorBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+}
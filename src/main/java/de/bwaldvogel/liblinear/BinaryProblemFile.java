@@ -0,0 +1,247 @@
+package de.bwaldvogel.liblinear;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * <p>Binary file format of a {@link Problem} (big-endian):</p>
+ *
+ * <pre>
+ *  int    magic ("LLPB")
+ *  int    version
+ *  int    l
+ *  int    n
+ *  double bias
+ *  long   nnz
+ *  double y[l]
+ *  long   rowPtr[l+1]
+ *  int    indices[nnz]
+ *  int    padding (if nnz is odd)
+ *  double values[nnz]
+ * </pre>
+ *
+ * The arrays are aligned to their element size, so they can be mapped directly.
+ */
+final class BinaryProblemFile {
+
+    static final int MAGIC       = 0x4c4c5042;
+    static final int VERSION     = 1;
+    static final int HEADER_SIZE = 32;
+
+    private BinaryProblemFile() {
+    }
+
+    static final class Header {
+        final int    l;
+        final int    n;
+        final double bias;
+        final long   nnz;
+
+        Header(int l, int n, double bias, long nnz) {
+            this.l = l;
+            this.n = n;
+            this.bias = bias;
+            this.nnz = nnz;
+        }
+
+        long getLabelPosition() {
+            return HEADER_SIZE;
+        }
+
+        long getRowPtrPosition() {
+            return getLabelPosition() + (long)l * Double.BYTES;
+        }
+
+        long getIndicesPosition() {
+            return getRowPtrPosition() + (l + 1L) * Long.BYTES;
+        }
+
+        long getValuesPosition() {
+            return getIndicesPosition() + (nnz + (nnz & 1)) * Integer.BYTES;
+        }
+
+        long getFileSize() {
+            return getValuesPosition() + nnz * Double.BYTES;
+        }
+    }
+
+    static void write(Problem prob, Path path) throws IOException {
+        FeatureMatrix x = prob.rows();
+        long nnz = 0;
+        for (int i = 0; i < prob.l; i++)
+            nnz += x.getRowLength(i);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(prob.l);
+            out.writeInt(prob.n);
+            out.writeDouble(prob.bias);
+            out.writeLong(nnz);
+
+            for (int i = 0; i < prob.l; i++)
+                out.writeDouble(prob.y[i]);
+
+            long offset = 0;
+            out.writeLong(offset);
+            for (int i = 0; i < prob.l; i++) {
+                offset += x.getRowLength(i);
+                out.writeLong(offset);
+            }
+
+            int[] indices = null;
+            for (int i = 0; i < prob.l; i++) {
+                int length = x.getRowLength(i);
+                indices = x.getIndices(i, indices);
+                for (int k = 0; k < length; k++)
+                    out.writeInt(indices[k]);
+            }
+            if ((nnz & 1) != 0)
+                out.writeInt(0);
+
+            for (int i = 0; i < prob.l; i++) {
+                int length = x.getRowLength(i);
+                for (int k = 0; k < length; k++)
+                    out.writeDouble(x.getValue(i, k));
+            }
+        }
+    }
+
+    static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0)
+                throw new IOException("unexpected end of file");
+        }
+        buffer.flip();
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("not a binary problem file");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported version of binary problem file: " + version);
+
+        Header header = new Header(buffer.getInt(), buffer.getInt(), buffer.getDouble(), buffer.getLong());
+        if (header.l < 0 || header.n < 0 || header.nnz < 0)
+            throw new IOException("illegal header of binary problem file");
+        if (channel.size() != header.getFileSize())
+            throw new IOException("unexpected size of binary problem file: " + channel.size() + " (expected " + header.getFileSize() + ")");
+        return header;
+    }
+
+    static Header readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    private interface ChunkConsumer {
+        void accept(ByteBuffer chunk, int offset, int count);
+    }
+
+    /**
+     * bulk reads an array of the given length that starts at the given position
+     */
+    private static void readArray(FileChannel channel, long position, int length, int elementSize, ChunkConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int offset = 0;
+        while (offset < length) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), (long)(length - offset) * elementSize));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new IOException("unexpected end of file");
+            }
+            buffer.flip();
+            int count = buffer.remaining() / elementSize;
+            consumer.accept(buffer, offset, count);
+            offset += count;
+            position += (long)count * elementSize;
+        }
+    }
+
+    static void readDoubles(FileChannel channel, long position, double[] target) throws IOException {
+        readArray(channel, position, target.length, Double.BYTES, (chunk, offset, count) -> chunk.asDoubleBuffer().get(target, offset, count));
+    }
+
+    static void readInts(FileChannel channel, long position, int[] target) throws IOException {
+        readArray(channel, position, target.length, Integer.BYTES, (chunk, offset, count) -> chunk.asIntBuffer().get(target, offset, count));
+    }
+
+    private static boolean isIndicator(double[] values) {
+        for (double value : values) {
+            if (value != 1)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * reads the problem into a {@link CsrMatrix}, or into an {@link IndicatorCsrMatrix} if all values (including the bias) are 1
+     */
+    static Problem read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.nnz > Integer.MAX_VALUE - 8)
+                throw new IOException("too many features (" + header.nnz + ") to load the problem onto the heap; use Problem.mapBinaryFile instead");
+            int nnz = (int)header.nnz;
+
+            Problem prob = new Problem();
+            prob.l = header.l;
+            prob.n = header.n;
+            prob.bias = header.bias;
+            prob.y = new double[header.l];
+            readDoubles(channel, header.getLabelPosition(), prob.y);
+
+            int[] rowPtr = new int[header.l + 1];
+            readArray(channel, header.getRowPtrPosition(), rowPtr.length, Long.BYTES, (chunk, offset, count) -> {
+                for (int i = 0; i < count; i++)
+                    rowPtr[offset + i] = (int)chunk.getLong();
+            });
+
+            int[] indices = new int[nnz];
+            readInts(channel, header.getIndicesPosition(), indices);
+            double[] values = new double[nnz];
+            readDoubles(channel, header.getValuesPosition(), values);
+
+            try {
+                if (isIndicator(values))
+                    prob.matrix = new IndicatorCsrMatrix(rowPtr, indices);
+                else
+                    prob.matrix = new CsrMatrix(rowPtr, indices, values);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("illegal row offsets in binary problem file", e);
+            }
+            return prob;
+        }
+    }
+
+    static Problem map(Path path) throws IOException {
+        return map(path, MappedCsrMatrix.DEFAULT_CHUNK_SHIFT);
+    }
+
+    static Problem map(Path path, int chunkShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+
+            Problem prob = new Problem();
+            prob.l = header.l;
+            prob.n = header.n;
+            prob.bias = header.bias;
+            prob.y = new double[header.l];
+            readDoubles(channel, header.getLabelPosition(), prob.y);
+            // the mapping stays valid after the channel is closed
+            prob.matrix = new MappedCsrMatrix(channel, header.l, header.nnz, header.getRowPtrPosition(), header.getIndicesPosition(),
+                header.getValuesPosition(), chunkShift);
+            return prob;
+        }
+    }
+
+}
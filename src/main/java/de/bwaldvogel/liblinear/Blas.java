@@ -1,12 +1,17 @@
 package de.bwaldvogel.liblinear;
 
+/**
+ * The routines use the kernels of the Vector API for unit increments if they are available (see {@link DenseKernels}).
+ */
 class Blas {
 
     static double dnrm2_(int n, double[] x, MutableInt incx) {
+        if (incx.get() == 1 && DenseKernels.INSTANCE.isVectorized())
+            return DenseKernels.INSTANCE.nrm2(n, x);
         return dnrm2_(new MutableInt(n), x, incx);
     }
 
-    private static double dnrm2_(MutableInt n, double[] x, MutableInt incx) {
+    static double dnrm2_(MutableInt n, double[] x, MutableInt incx) {
         final double norm;
         double scale, absxi, ssq, temp;
 
@@ -55,6 +60,8 @@ class Blas {
     }
 
     static double ddot_(int n, double[] sx, int incx, double[] sy, int incy) {
+        if (incx == 1 && incy == 1 && DenseKernels.INSTANCE.isVectorized())
+            return DenseKernels.INSTANCE.dot(n, sx, sy);
         return ddot_(new MutableInt(n), sx, new MutableInt(incx), sy, new MutableInt(incy));
     }
 
@@ -102,6 +109,11 @@ class Blas {
     }
 
     static int daxpy_(int n, double sa, double[] sx, int incx, double[] sy, int incy) {
+        if (incx == 1 && incy == 1 && DenseKernels.INSTANCE.isVectorized()) {
+            if (n > 0 && sa != 0.0)
+                DenseKernels.INSTANCE.axpy(n, sa, sx, sy);
+            return 0;
+        }
         return daxpy_(new MutableInt(n), new MutableDouble(sa), sx, new MutableInt(incx), sy, new MutableInt(incy));
     }
 
@@ -146,6 +158,11 @@ class Blas {
     }
 
     static int dscal_(int n, double sa, double[] sx, int incx) {
+        if (incx == 1 && DenseKernels.INSTANCE.isVectorized()) {
+            if (n > 0)
+                DenseKernels.INSTANCE.scal(n, sa, sx);
+            return 0;
+        }
         return dscal_(new MutableInt(n), new MutableDouble(sa), sx, new MutableInt(incx));
     }
 
@@ -0,0 +1,146 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Compressed sparse row (CSR) storage of the feature vectors.</p>
+ *
+ * <p>The entries of row i are stored at the positions rowPtr[i] (inclusive) to rowPtr[i+1] (exclusive)
+ * of the arrays indices and values. Compared to {@link Problem#x} this avoids one {@link FeatureNode}
+ * object per non-zero value.</p>
+ *
+ * <p>Note: The arrays are <b>not</b> copied.</p>
+ *
+ * For example, the first two instances of the training data described in {@link Problem}
+ * (with bias = 1) are stored as
+ * <pre>
+ *  rowPtr  -&gt; 0 3 7
+ *  indices -&gt; 2   3   6 2   3   4    6
+ *  values  -&gt; 0.1 0.2 1 0.1 0.3 -1.2 1
+ * </pre>
+ *
+ * @see Problem#matrix
+ */
+public final class CsrMatrix extends FeatureMatrix {
+
+    final int[]    rowPtr;
+    final int[]    indices;
+    final double[] values;
+
+    /**
+     * @param rowPtr  array of length l+1 with the start offset of each row and the total number of non-zeros at the end
+     * @param indices the (1-based) feature indices, sorted in ascending order within each row
+     * @param values  the feature values
+     */
+    public CsrMatrix(int[] rowPtr, int[] indices, double[] values) {
+        if (indices == null || values == null)
+            throw new IllegalArgumentException("indices and values must not be null");
+        checkArrays(rowPtr, indices.length, values.length);
+        this.rowPtr = rowPtr;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    static void checkArrays(int[] rowPtr, int indicesLength, int valuesLength) {
+        if (rowPtr == null || rowPtr.length == 0)
+            throw new IllegalArgumentException("rowPtr must not be empty");
+        if (rowPtr[0] != 0)
+            throw new IllegalArgumentException("rowPtr must start with 0");
+        for (int i = 1; i < rowPtr.length; i++) {
+            if (rowPtr[i] < rowPtr[i - 1])
+                throw new IllegalArgumentException("rowPtr must not be decreasing");
+        }
+        int nnz = rowPtr[rowPtr.length - 1];
+        if (indicesLength < nnz || valuesLength < nnz)
+            throw new IllegalArgumentException("indices and values must contain at least " + nnz + " elements");
+    }
+
+    /**
+     * Converts the feature nodes to CSR storage.
+     */
+    public static CsrMatrix fromFeatures(Feature[][] x) {
+        int[] rowPtr = new int[x.length + 1];
+        for (int i = 0; i < x.length; i++)
+            rowPtr[i + 1] = rowPtr[i] + x[i].length;
+
+        int[] indices = new int[rowPtr[x.length]];
+        double[] values = new double[rowPtr[x.length]];
+        int k = 0;
+        for (Feature[] xi : x) {
+            for (Feature feature : xi) {
+                indices[k] = feature.getIndex();
+                values[k] = feature.getValue();
+                k++;
+            }
+        }
+        return new CsrMatrix(rowPtr, indices, values);
+    }
+
+    /**
+     * @return the total number of stored (non-zero) features
+     */
+    public int getNumNonZeros() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    @Override
+    public int getNumRows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return rowPtr[row + 1] - rowPtr[row];
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return indices[rowPtr[row] + k];
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return values[rowPtr[row] + k];
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return SparseOperator.nrm2_sq(values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return SparseOperator.dot(s, indices, values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        DenseKernels.INSTANCE.axpy(a, indices, values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        SparseOperator.atomic_axpy(a, indices, values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return SparseOperator.sparse_dot(indices, values, rowPtr[row1], rowPtr[row1 + 1], rowPtr[row2], rowPtr[row2 + 1]);
+    }
+
+    @Override
+    CsrMatrix select(int[] rows) {
+        int[] newRowPtr = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++)
+            newRowPtr[i + 1] = newRowPtr[i] + getRowLength(rows[i]);
+
+        int[] newIndices = new int[newRowPtr[rows.length]];
+        double[] newValues = new double[newRowPtr[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            int from = rowPtr[rows[i]];
+            int length = newRowPtr[i + 1] - newRowPtr[i];
+            System.arraycopy(indices, from, newIndices, newRowPtr[i], length);
+            System.arraycopy(values, from, newValues, newRowPtr[i], length);
+        }
+        return new CsrMatrix(newRowPtr, newIndices, newValues);
+    }
+
+}
@@ -0,0 +1,113 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Kernels of dense vectors for {@link Blas}, {@link Newton} and {@link L2R_ErmFunction}, and the axpy of the sparse rows
+ * of a {@link CsrMatrix}.</p>
+ *
+ * <p>The multi-release jar contains an implementation for Java 17 and later that uses the incubating Vector API.
+ * It is only used if the module is added to the JVM ({@code --add-modules jdk.incubator.vector}); otherwise the scalar
+ * loops of this class are used. The element-wise kernels of both implementations have identical results. The sums of
+ * {@link #dot} and {@link #nrm2} are accumulated in a different order by the Vector API.</p>
+ */
+class DenseKernels {
+
+    static final DenseKernels SCALAR = new DenseKernels();
+
+    static final DenseKernels INSTANCE = load();
+
+    private static DenseKernels load() {
+        try {
+            return (DenseKernels)Class.forName("de.bwaldvogel.liblinear.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 11 or the module jdk.incubator.vector is not available
+            return SCALAR;
+        }
+    }
+
+    /**
+     * @return true if the kernels use the Vector API
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    final double dot(int n, double[] x, double[] y) {
+        return dot(0, n, x, y);
+    }
+
+    /**
+     * @return the sum of x[i] * y[i] for i in [from, to)
+     */
+    double dot(int from, int to, double[] x, double[] y) {
+        double sum = 0;
+        for (int i = from; i < to; i++)
+            sum += x[i] * y[i];
+        return sum;
+    }
+
+    /**
+     * @return the euclidean norm of x[0] to x[n-1]
+     */
+    double nrm2(int n, double[] x) {
+        return Blas.dnrm2_(new MutableInt(n), x, new MutableInt(1));
+    }
+
+    final void axpy(int n, double a, double[] x, double[] y) {
+        axpy(0, n, a, x, y);
+    }
+
+    /**
+     * y[i] += a * x[i] for i in [from, to)
+     */
+    void axpy(int from, int to, double a, double[] x, double[] y) {
+        for (int i = from; i < to; i++)
+            y[i] += a * x[i];
+    }
+
+    /**
+     * <p>y[indices[k] - 1] += a * values[k] for k in [from, to); the indices must be distinct.</p>
+     *
+     * <p>There is no inner product of a sparse row: a sum in lane order would depend on the vector width of the machine,
+     * and a {@link CsrMatrix} would no longer train the same models as the other storages of the same data.</p>
+     */
+    void axpy(double a, int[] indices, double[] values, int from, int to, double[] y) {
+        SparseOperator.axpy(a, indices, values, from, to, y);
+    }
+
+    final void scal(int n, double a, double[] x) {
+        scal(0, n, a, x);
+    }
+
+    /**
+     * x[i] = a * x[i] for i in [from, to)
+     */
+    void scal(int from, int to, double a, double[] x) {
+        for (int i = from; i < to; i++)
+            x[i] = a * x[i];
+    }
+
+    final void affine(int n, double a, double b, double[] x) {
+        affine(0, n, a, b, x);
+    }
+
+    /**
+     * x[i] = a + b * x[i] for i in [from, to)
+     */
+    void affine(int from, int to, double a, double b, double[] x) {
+        for (int i = from; i < to; i++)
+            x[i] = a + b * x[i];
+    }
+
+    final void divide(int n, double[] x, double[] y, double[] z) {
+        divide(0, n, x, y, z);
+    }
+
+    /**
+     * z[i] = x[i] / y[i] for i in [from, to)
+     */
+    void divide(int from, int to, double[] x, double[] y, double[] z) {
+        for (int i = from; i < to; i++)
+            z[i] = x[i] / y[i];
+    }
+
+}
@@ -0,0 +1,172 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Dense row-major storage of the feature vectors in a single array: the value of feature j
+ * (1-based) of row i is stored at data[i * numColumns + j - 1].</p>
+ *
+ * <p>For low-dimensional dense data this avoids storing an index per value, and the kernels are
+ * simple counted loops over contiguous memory that the JIT compiler can unroll and vectorize.
+ * Zeros are stored explicitly, so for sparse data {@link CsrMatrix} is the better choice.
+ * Since Java arrays are limited to 2^31-1 elements, numRows * numColumns must not exceed that.</p>
+ *
+ * <p>Note: The array is <b>not</b> copied.</p>
+ *
+ * @see Problem#matrix
+ */
+public final class DenseMatrix extends FeatureMatrix {
+
+    final int      numRows;
+    final int      numColumns;
+    final double[] data;
+
+    /**
+     * @param numRows    the number of rows (instances)
+     * @param numColumns the number of features of each row, including the bias feature (if any)
+     * @param data       the feature values in row-major order
+     */
+    public DenseMatrix(int numRows, int numColumns, double[] data) {
+        if (numRows < 0 || numColumns < 0)
+            throw new IllegalArgumentException("numRows and numColumns must not be negative");
+        if (data == null)
+            throw new IllegalArgumentException("data must not be null");
+        if (data.length < (long)numRows * numColumns)
+            throw new IllegalArgumentException("data must contain at least " + (long)numRows * numColumns + " elements");
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.data = data;
+    }
+
+    /**
+     * Converts the feature nodes to dense storage. Features with an index &gt; numColumns are ignored.
+     */
+    public static DenseMatrix fromFeatures(Feature[][] x, int numColumns) {
+        return copyOf(new FeatureArrayMatrix(x), numColumns);
+    }
+
+    /**
+     * Converts the feature vectors to dense storage. Features with an index &gt; numColumns are ignored.
+     */
+    public static DenseMatrix copyOf(FeatureMatrix matrix, int numColumns) {
+        int l = matrix.getNumRows();
+        if ((long)l * numColumns > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("too many values for a dense matrix: " + (long)l * numColumns);
+        double[] data = new double[l * numColumns];
+        int[] indices = null;
+        for (int i = 0; i < l; i++) {
+            int length = matrix.getRowLength(i);
+            indices = matrix.getIndices(i, indices);
+            for (int k = 0; k < length; k++) {
+                int index = indices[k];
+                if (index <= numColumns)
+                    data[i * numColumns + index - 1] = matrix.getValue(i, k);
+            }
+        }
+        return new DenseMatrix(l, numColumns, data);
+    }
+
+    /**
+     * @return the number of features of each row
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return numColumns;
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return k + 1;
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return data[row * numColumns + k];
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        double ret = 0;
+        int offset = row * numColumns;
+        for (int k = 0; k < numColumns; k++) {
+            double value = data[offset + k];
+            ret += value * value;
+        }
+        return (ret);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        double ret = 0;
+        int offset = row * numColumns;
+        for (int k = 0; k < numColumns; k++) {
+            ret += s[k] * data[offset + k];
+        }
+        return (ret);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        int offset = row * numColumns;
+        for (int k = 0; k < numColumns; k++) {
+            y[k] += a * data[offset + k];
+        }
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        int offset = row * numColumns;
+        for (int k = 0; k < numColumns; k++) {
+            SparseOperator.atomic_add(y, k, a * data[offset + k]);
+        }
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        double ret = 0;
+        int offset1 = row1 * numColumns;
+        int offset2 = row2 * numColumns;
+        for (int k = 0; k < numColumns; k++) {
+            ret += data[offset1 + k] * data[offset2 + k];
+        }
+        return (ret);
+    }
+
+    @Override
+    void addDecisionValues(int row, double[] w, int n, int nr_w, double[] dec_values) {
+        int offset = row * numColumns;
+        // the dimension of testing data may exceed that of training
+        int m = Math.min(numColumns, n);
+        if (nr_w == 1) {
+            double ret = 0;
+            for (int k = 0; k < m; k++) {
+                ret += w[k] * data[offset + k];
+            }
+            dec_values[0] += ret;
+        } else {
+            for (int k = 0; k < m; k++) {
+                double value = data[offset + k];
+                for (int i = 0; i < nr_w; i++) {
+                    dec_values[i] += w[k * nr_w + i] * value;
+                }
+            }
+        }
+    }
+
+    @Override
+    DenseMatrix select(int[] rows) {
+        double[] newData = new double[rows.length * numColumns];
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(data, rows[i] * numColumns, newData, i * numColumns, numColumns);
+        }
+        return new DenseMatrix(rows.length, numColumns, newData);
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * Adapter that exposes the {@link Feature} arrays of {@link Problem#x} as {@link FeatureMatrix}.
+ */
+final class FeatureArrayMatrix extends FeatureMatrix {
+
+    private final Feature[][] x;
+
+    FeatureArrayMatrix(Feature[][] x) {
+        this.x = x;
+    }
+
+    Feature[][] getFeatures() {
+        return x;
+    }
+
+    @Override
+    public int getNumRows() {
+        return x.length;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return x[row].length;
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return x[row][k].getIndex();
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return x[row][k].getValue();
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return SparseOperator.nrm2_sq(x[row]);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return SparseOperator.dot(s, x[row]);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        SparseOperator.axpy(a, x[row], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return SparseOperator.sparse_dot(x[row1], x[row2]);
+    }
+
+    @Override
+    FeatureMatrix select(int[] rows) {
+        Feature[][] selected = new Feature[rows.length][];
+        for (int i = 0; i < rows.length; i++)
+            selected[i] = x[rows[i]];
+        return new FeatureArrayMatrix(selected);
+    }
+
+}
@@ -0,0 +1,141 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Row-oriented storage of the feature vectors of a {@link Problem}.</p>
+ *
+ * <p>The solvers access the training instances only through this class, so primitive
+ * storage such as {@link CsrMatrix} can be used instead of {@link Problem#x}.
+ * Feature indices are 1-based and must be sorted in ascending order within each row.</p>
+ *
+ * @see Problem#matrix
+ */
+public abstract class FeatureMatrix {
+
+    FeatureMatrix() {
+    }
+
+    /**
+     * @return the number of rows (instances)
+     */
+    public abstract int getNumRows();
+
+    /**
+     * @return the number of (non-zero) features that are stored for the given row
+     */
+    public abstract int getRowLength(int row);
+
+    /**
+     * @return the feature index of the k-th entry of the given row
+     */
+    public abstract int getIndex(int row, int k);
+
+    /**
+     * <p>Returns the feature indices of all entries of the given row.</p>
+     *
+     * <p>Use this instead of calling {@link #getIndex(int, int)} for each entry, since a compressed row such as in
+     * {@link VarintCsrMatrix} can only be decoded from its start.</p>
+     *
+     * @param buffer an array that is reused if it is large enough; may be null
+     * @return buffer or a new array, whose first {@link #getRowLength(int)} elements are the feature indices of the row
+     */
+    public int[] getIndices(int row, int[] buffer) {
+        int length = getRowLength(row);
+        if (buffer == null || buffer.length < length)
+            buffer = new int[length];
+        for (int k = 0; k < length; k++)
+            buffer[k] = getIndex(row, k);
+        return buffer;
+    }
+
+    /**
+     * @return the feature value of the k-th entry of the given row
+     */
+    public abstract double getValue(int row, int k);
+
+    /**
+     * @return the squared euclidean norm of the given row
+     */
+    abstract double nrm2_sq(int row);
+
+    /**
+     * @return the inner product of the given row and the dense vector s
+     */
+    abstract double dot(int row, double[] s);
+
+    /**
+     * y += a * x_row
+     */
+    abstract void axpy(double a, int row, double[] y);
+
+    /**
+     * y += a * x_row, where each element of y is added atomically, so that no updates are lost
+     * if other threads update y concurrently
+     */
+    void atomic_axpy(double a, int row, double[] y) {
+        int length = getRowLength(row);
+        for (int k = 0; k < length; k++) {
+            SparseOperator.atomic_add(y, getIndex(row, k) - 1, a * getValue(row, k));
+        }
+    }
+
+    /**
+     * @return the inner product of two rows of this matrix
+     */
+    double sparse_dot(int row1, int row2) {
+        double ret = 0;
+
+        int pos1 = 0;
+        int pos2 = 0;
+        int length1 = getRowLength(row1);
+        int length2 = getRowLength(row2);
+
+        while (pos1 < length1 && pos2 < length2) {
+            int index1 = getIndex(row1, pos1);
+            int index2 = getIndex(row2, pos2);
+            if (index1 == index2) {
+                ret += getValue(row1, pos1) * getValue(row2, pos2);
+                pos1++;
+                pos2++;
+            } else {
+                if (index1 > index2) {
+                    pos2++;
+                } else {
+                    pos1++;
+                }
+            }
+        }
+
+        return (ret);
+    }
+
+    /**
+     * dec_values[i] += w[(idx-1)*nr_w+i] * value for each feature (idx, value) of the given row with idx &lt;= n
+     */
+    void addDecisionValues(int row, double[] w, int n, int nr_w, double[] dec_values) {
+        int length = getRowLength(row);
+        for (int k = 0; k < length; k++) {
+            int idx = getIndex(row, k);
+            // the dimension of testing data may exceed that of training
+            if (idx <= n) {
+                double value = getValue(row, k);
+                for (int i = 0; i < nr_w; i++) {
+                    dec_values[i] += w[(idx - 1) * nr_w + i] * value;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a matrix that contains the given rows of this matrix in the given order
+     */
+    abstract FeatureMatrix select(int[] rows);
+
+    /**
+     * @return a view of the given rows of this matrix in the given order; unlike {@link #select(int[])}, the feature
+     *         vectors are never copied, only the row numbers are kept
+     */
+    FeatureMatrix view(int[] rows) {
+        return new RowSelection(this, rows);
+    }
+
+}
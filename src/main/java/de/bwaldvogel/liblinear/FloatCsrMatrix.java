@@ -0,0 +1,133 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Compressed sparse row (CSR) storage like {@link CsrMatrix}, but the feature values are stored in
+ * single precision. This halves the memory (and memory bandwidth) that is needed for the values,
+ * e.g. for counts or TF-IDF scores. The solvers still accumulate in double precision.</p>
+ *
+ * <p>Note: The arrays are <b>not</b> copied.</p>
+ *
+ * @see Problem#matrix
+ */
+public final class FloatCsrMatrix extends FeatureMatrix {
+
+    final int[]   rowPtr;
+    final int[]   indices;
+    final float[] values;
+
+    /**
+     * @param rowPtr  array of length l+1 with the start offset of each row and the total number of non-zeros at the end
+     * @param indices the (1-based) feature indices, sorted in ascending order within each row
+     * @param values  the feature values
+     */
+    public FloatCsrMatrix(int[] rowPtr, int[] indices, float[] values) {
+        if (indices == null || values == null)
+            throw new IllegalArgumentException("indices and values must not be null");
+        CsrMatrix.checkArrays(rowPtr, indices.length, values.length);
+        this.rowPtr = rowPtr;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Converts the feature vectors to single-precision CSR storage.
+     */
+    public static FloatCsrMatrix fromFeatures(Feature[][] x) {
+        return copyOf(new FeatureArrayMatrix(x));
+    }
+
+    /**
+     * Converts the feature vectors to single-precision CSR storage.
+     */
+    public static FloatCsrMatrix copyOf(FeatureMatrix matrix) {
+        int l = matrix.getNumRows();
+        int[] rowPtr = new int[l + 1];
+        for (int i = 0; i < l; i++)
+            rowPtr[i + 1] = rowPtr[i] + matrix.getRowLength(i);
+
+        int[] indices = new int[rowPtr[l]];
+        float[] values = new float[rowPtr[l]];
+        int k = 0;
+        int[] rowIndices = null;
+        for (int i = 0; i < l; i++) {
+            int length = matrix.getRowLength(i);
+            rowIndices = matrix.getIndices(i, rowIndices);
+            for (int j = 0; j < length; j++) {
+                indices[k] = rowIndices[j];
+                values[k] = (float)matrix.getValue(i, j);
+                k++;
+            }
+        }
+        return new FloatCsrMatrix(rowPtr, indices, values);
+    }
+
+    /**
+     * @return the total number of stored (non-zero) features
+     */
+    public int getNumNonZeros() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    @Override
+    public int getNumRows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return rowPtr[row + 1] - rowPtr[row];
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return indices[rowPtr[row] + k];
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return values[rowPtr[row] + k];
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return SparseOperator.nrm2_sq(values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return SparseOperator.dot(s, indices, values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        SparseOperator.axpy(a, indices, values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        SparseOperator.atomic_axpy(a, indices, values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return SparseOperator.sparse_dot(indices, values, rowPtr[row1], rowPtr[row1 + 1], rowPtr[row2], rowPtr[row2 + 1]);
+    }
+
+    @Override
+    FloatCsrMatrix select(int[] rows) {
+        int[] newRowPtr = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++)
+            newRowPtr[i + 1] = newRowPtr[i] + getRowLength(rows[i]);
+
+        int[] newIndices = new int[newRowPtr[rows.length]];
+        float[] newValues = new float[newRowPtr[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            int from = rowPtr[rows[i]];
+            int length = newRowPtr[i + 1] - newRowPtr[i];
+            System.arraycopy(indices, from, newIndices, newRowPtr[i], length);
+            System.arraycopy(values, from, newValues, newRowPtr[i], length);
+        }
+        return new FloatCsrMatrix(newRowPtr, newIndices, newValues);
+    }
+
+}
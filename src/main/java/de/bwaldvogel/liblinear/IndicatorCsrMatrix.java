@@ -0,0 +1,136 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Compressed sparse row (CSR) storage of binary (indicator) features, e.g. one-hot encoded
+ * categories or bag-of-words occurrences: every stored feature has the value 1, so only the
+ * feature indices are stored. This halves the memory compared to {@link CsrMatrix} and the
+ * kernels don't need to multiply by the values.</p>
+ *
+ * <p>{@link ProblemBuilder}, {@link Train#readCompactProblem(java.nio.file.Path, double)} and
+ * {@link Problem#readBinaryFile(java.nio.file.Path)} use this storage automatically if all values (including the bias) are 1.</p>
+ *
+ * <p>Note: The arrays are <b>not</b> copied.</p>
+ *
+ * @see Problem#matrix
+ */
+public final class IndicatorCsrMatrix extends FeatureMatrix {
+
+    final int[] rowPtr;
+    final int[] indices;
+
+    /**
+     * @param rowPtr  array of length l+1 with the start offset of each row and the total number of non-zeros at the end
+     * @param indices the (1-based) feature indices with value 1, sorted in ascending order within each row
+     */
+    public IndicatorCsrMatrix(int[] rowPtr, int[] indices) {
+        if (indices == null)
+            throw new IllegalArgumentException("indices must not be null");
+        CsrMatrix.checkArrays(rowPtr, indices.length, indices.length);
+        this.rowPtr = rowPtr;
+        this.indices = indices;
+    }
+
+    /**
+     * Converts the feature vectors to indicator storage.
+     *
+     * @throws IllegalArgumentException if a feature value is not 1
+     */
+    public static IndicatorCsrMatrix copyOf(FeatureMatrix matrix) {
+        int l = matrix.getNumRows();
+        int[] rowPtr = new int[l + 1];
+        for (int i = 0; i < l; i++)
+            rowPtr[i + 1] = rowPtr[i] + matrix.getRowLength(i);
+
+        int[] indices = new int[rowPtr[l]];
+        int k = 0;
+        int[] rowIndices = null;
+        for (int i = 0; i < l; i++) {
+            int length = matrix.getRowLength(i);
+            rowIndices = matrix.getIndices(i, rowIndices);
+            for (int j = 0; j < length; j++) {
+                if (matrix.getValue(i, j) != 1)
+                    throw new IllegalArgumentException("feature value must be 1 but was " + matrix.getValue(i, j));
+                indices[k++] = rowIndices[j];
+            }
+        }
+        return new IndicatorCsrMatrix(rowPtr, indices);
+    }
+
+    /**
+     * @return the total number of stored (non-zero) features
+     */
+    public int getNumNonZeros() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    @Override
+    public int getNumRows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return rowPtr[row + 1] - rowPtr[row];
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return indices[rowPtr[row] + k];
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return 1;
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return rowPtr[row + 1] - rowPtr[row];
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return SparseOperator.dot(s, indices, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        SparseOperator.axpy(a, indices, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        SparseOperator.atomic_axpy(a, indices, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return SparseOperator.sparse_dot(indices, rowPtr[row1], rowPtr[row1 + 1], rowPtr[row2], rowPtr[row2 + 1]);
+    }
+
+    @Override
+    void addDecisionValues(int row, double[] w, int n, int nr_w, double[] dec_values) {
+        for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+            int idx = indices[k];
+            if (idx <= n) {
+                for (int i = 0; i < nr_w; i++) {
+                    dec_values[i] += w[(idx - 1) * nr_w + i];
+                }
+            }
+        }
+    }
+
+    @Override
+    IndicatorCsrMatrix select(int[] rows) {
+        int[] newRowPtr = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++)
+            newRowPtr[i + 1] = newRowPtr[i] + getRowLength(rows[i]);
+
+        int[] newIndices = new int[newRowPtr[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(indices, rowPtr[rows[i]], newIndices, newRowPtr[i], newRowPtr[i + 1] - newRowPtr[i]);
+        }
+        return new IndicatorCsrMatrix(newRowPtr, newIndices);
+    }
+
+}
@@ -1,47 +1,85 @@
 package de.bwaldvogel.liblinear;
 
+import java.util.Arrays;
+
 // L2-regularized empirical risk minimization
 // min_w w^Tw/2 + \sum C_i \xi(w^Tx_i), where \xi() is the loss
 abstract class L2R_ErmFunction implements Function {
 
-    final double[] C;
-    final Problem  prob;
+    final double[]      C;
+    final Problem       prob;
+    final FeatureMatrix x;
     double[] wx;
     double[] tmp; // a working array
     private double  wTw;
     final   boolean regularize_bias;
+    final   int     nr_thread;
+    private final SolverWorkspace workspace;
 
-    L2R_ErmFunction(Problem prob, Parameter parameter, double[] C) {
+    L2R_ErmFunction(Problem prob, Parameter parameter, double[] C, SolverWorkspace workspace) {
         int l = prob.l;
 
         this.prob = prob;
+        this.x = prob.rows();
 
-        wx = new double[l];
-        tmp = new double[l];
+        wx = workspace.get(SolverWorkspace.DoubleArray.ERM_WX, l);
+        tmp = workspace.get(SolverWorkspace.DoubleArray.ERM_TMP, l);
         this.C = C;
         this.regularize_bias = parameter.regularize_bias;
+        this.nr_thread = parameter.nr_thread;
+        this.workspace = workspace;
     }
 
-    void Xv(double[] v, double[] Xv) {
-        int i;
-        int l = prob.l;
-        Feature[][] x = prob.x;
-
-        for (i = 0; i < l; i++)
-            Xv[i] = SparseOperator.dot(v, x[i]);
-    }
-
-    void XTv(double[] v, double[] XTv) {
-        int l = prob.l;
+    /**
+     * <p>sum = the sum of the contributions of count rows (sum has get_nr_variable() elements), which accumulation adds
+     * for the rows [from, to).</p>
+     *
+     * <p>With multiple threads, each thread accumulates a contiguous range of the rows into its own array,
+     * and the arrays are added in a fixed order afterwards, so the result is deterministic.</p>
+     */
+    void sum_rows(int count, Parallel.RangeSum accumulation, double[] sum) {
         int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
-
         for (int i = 0; i < w_size; i++)
-            XTv[i] = 0;
+            sum[i] = 0;
 
-        for (int i = 0; i < l; i++) {
-            SparseOperator.axpy(v[i], x[i], XTv);
+        int num_chunks = Parallel.numChunks(nr_thread, count, Parallel.MIN_ROWS_PER_THREAD);
+        if (num_chunks == 1) {
+            accumulation.accumulate(0, count, sum);
+            return;
         }
+
+        double[][] partial = workspace.partialSums(num_chunks - 1, w_size);
+        Parallel.forChunks(num_chunks, count, (t, from, to) -> {
+            double[] target = sum;
+            if (t > 0) {
+                target = partial[t - 1];
+                Arrays.fill(target, 0);
+            }
+            accumulation.accumulate(from, to, target);
+        });
+        Parallel.forChunks(num_chunks, w_size, (t, from, to) -> {
+            for (int c = 0; c < num_chunks - 1; c++) {
+                double[] p = partial[c];
+                for (int i = from; i < to; i++)
+                    sum[i] += p[i];
+            }
+        });
+    }
+
+    void Xv(double[] v, double[] Xv) {
+        // each element is computed by one thread, so the result does not depend on the number of threads
+        Parallel.forRange(nr_thread, prob.l, Parallel.MIN_ROWS_PER_THREAD, (from, to) -> {
+            for (int i = from; i < to; i++)
+                Xv[i] = x.dot(i, v);
+        });
+    }
+
+    void XTv(double[] v, double[] XTv) {
+        sum_rows(prob.l, (from, to, sum) -> {
+            for (int i = from; i < to; i++) {
+                x.axpy(v[i], i, sum);
+            }
+        }, XTv);
     }
 
     protected abstract double C_times_loss(int i, double wx_i);
@@ -53,11 +91,9 @@ abstract class L2R_ErmFunction implements Function {
         int l = prob.l;
         int w_size = get_nr_variable();
 
-        wTw = 0;
         Xv(w, wx);
 
-        for (i = 0; i < w_size; i++)
-            wTw += w[i] * w[i];
+        wTw = DenseKernels.INSTANCE.dot(w_size, w, w);
         if (!regularize_bias)
             wTw -= w[w_size - 1] * w[w_size - 1];
         for (i = 0; i < l; i++)
@@ -78,20 +114,15 @@ abstract class L2R_ErmFunction implements Function {
     public double linesearch_and_update(double[] w, double[] s, MutableDouble f, double[] g, double alpha) {
         int i;
         int l = prob.l;
-        double sTs = 0;
-        double wTs = 0;
-        double gTs = 0;
         double eta = 0.01;
         int w_size = get_nr_variable();
         int max_num_linesearch = 20;
         double fold = f.get();
         Xv(s, tmp);
 
-        for (i = 0; i < w_size; i++) {
-            sTs += s[i] * s[i];
-            wTs += s[i] * w[i];
-            gTs += s[i] * g[i];
-        }
+        double sTs = DenseKernels.INSTANCE.dot(w_size, s, s);
+        double wTs = DenseKernels.INSTANCE.dot(w_size, s, w);
+        double gTs = DenseKernels.INSTANCE.dot(w_size, s, g);
         if (!regularize_bias) {
             // bias not used in calculating (w + \alpha s)^T (w + \alpha s)
             sTs -= s[w_size - 1] * s[w_size - 1];
@@ -107,8 +138,7 @@ abstract class L2R_ErmFunction implements Function {
             }
             f.set(loss + (alpha * alpha * sTs + wTw) / 2.0 + alpha * wTs);
             if (f.get() - fold <= eta * alpha * gTs) {
-                for (i = 0; i < l; i++)
-                    wx[i] += alpha * tmp[i];
+                DenseKernels.INSTANCE.axpy(l, alpha, tmp, wx);
                 break;
             } else
                 alpha *= 0.5;
@@ -118,8 +148,7 @@ abstract class L2R_ErmFunction implements Function {
             f.set(fold);
             return 0;
         } else
-            for (i = 0; i < w_size; i++)
-                w[i] += alpha * s[i];
+            DenseKernels.INSTANCE.axpy(w_size, alpha, s, w);
 
         wTw += alpha * alpha * sTs + 2 * alpha * wTs;
         return alpha;
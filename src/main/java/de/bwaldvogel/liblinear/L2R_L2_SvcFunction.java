@@ -5,9 +5,9 @@ class L2R_L2_SvcFunction extends L2R_ErmFunction {
     protected final int[] I;
     protected       int   sizeI;
 
-    public L2R_L2_SvcFunction(Problem prob, Parameter param, double[] C) {
-        super(prob, param, C);
-        I = new int[prob.l];
+    L2R_L2_SvcFunction(Problem prob, Parameter param, double[] C, SolverWorkspace workspace) {
+        super(prob, param, C, workspace);
+        I = workspace.get(SolverWorkspace.IntArray.ERM_I, prob.l);
     }
 
     @Override
@@ -46,17 +46,20 @@ class L2R_L2_SvcFunction extends L2R_ErmFunction {
     @Override
     public void get_diag_preconditioner(double[] M) {
         int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
 
         for (int i = 0; i < w_size; i++)
             M[i] = 1;
         if (!regularize_bias)
             M[w_size - 1] = 0;
 
+        int[] indices = null;
         for (int i = 0; i < sizeI; i++) {
             int idx = I[i];
-            for (Feature s : x[idx]) {
-                M[s.getIndex() - 1] += s.getValue() * s.getValue() * C[idx] * 2;
+            int length = x.getRowLength(idx);
+            indices = x.getIndices(idx, indices);
+            for (int k = 0; k < length; k++) {
+                double value = x.getValue(idx, k);
+                M[indices[k] - 1] += value * value * C[idx] * 2;
             }
         }
     }
@@ -65,17 +68,16 @@ class L2R_L2_SvcFunction extends L2R_ErmFunction {
     public void Hv(double[] s, double[] Hs) {
         int i;
         int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
 
-        for (i = 0; i < w_size; i++)
-            Hs[i] = 0;
-        for (i = 0; i < sizeI; i++) {
-            Feature[] xi = x[I[i]];
-            double xTs = SparseOperator.dot(s, xi);
-            xTs = C[I[i]] * xTs;
+        sum_rows(sizeI, (from, to, sum) -> {
+            for (int j = from; j < to; j++) {
+                int xi = I[j];
+                double xTs = x.dot(xi, s);
+                xTs = C[xi] * xTs;
 
-            SparseOperator.axpy(xTs, xi, Hs);
-        }
+                x.axpy(xTs, xi, sum);
+            }
+        }, Hs);
         for (i = 0; i < w_size; i++)
             Hs[i] = s[i] + 2 * Hs[i];
         if (!regularize_bias)
@@ -83,14 +85,10 @@ class L2R_L2_SvcFunction extends L2R_ErmFunction {
     }
 
     protected void subXTv(double[] v, double[] XTv) {
-        int i;
-        int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
-
-        for (i = 0; i < w_size; i++)
-            XTv[i] = 0;
-        for (i = 0; i < sizeI; i++)
-            SparseOperator.axpy(v[i], x[I[i]], XTv);
+        sum_rows(sizeI, (from, to, sum) -> {
+            for (int i = from; i < to; i++)
+                x.axpy(v[i], I[i], sum);
+        }, XTv);
     }
 
 }
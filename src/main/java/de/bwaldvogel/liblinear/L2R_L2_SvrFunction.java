@@ -8,7 +8,11 @@ public class L2R_L2_SvrFunction extends L2R_L2_SvcFunction {
     private final double p;
 
     public L2R_L2_SvrFunction(Problem prob, Parameter param, double[] C) {
-        super(prob, param, C);
+        this(prob, param, C, new SolverWorkspace());
+    }
+
+    L2R_L2_SvrFunction(Problem prob, Parameter param, double[] C, SolverWorkspace workspace) {
+        super(prob, param, C, workspace);
         this.p = param.p;
     }
 
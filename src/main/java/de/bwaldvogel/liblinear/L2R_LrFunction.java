@@ -4,10 +4,10 @@ class L2R_LrFunction extends L2R_ErmFunction {
 
     private final double[] D;
 
-    L2R_LrFunction(Problem prob, Parameter param, double[] C) {
-        super(prob, param, C);
+    L2R_LrFunction(Problem prob, Parameter param, double[] C, SolverWorkspace workspace) {
+        super(prob, param, C, workspace);
         int l = prob.l;
-        D = new double[l];
+        D = workspace.get(SolverWorkspace.DoubleArray.ERM_D, l);
     }
 
     @Override
@@ -43,16 +43,19 @@ class L2R_LrFunction extends L2R_ErmFunction {
     public void get_diag_preconditioner(double[] M) {
         int l = prob.l;
         int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
 
         for (int i = 0; i < w_size; i++)
             M[i] = 1;
         if (!regularize_bias)
             M[w_size - 1] = 0;
 
+        int[] indices = null;
         for (int i = 0; i < l; i++) {
-            for (Feature xi : x[i]) {
-                M[xi.getIndex() - 1] += xi.getValue() * xi.getValue() * C[i] * D[i];
+            int length = x.getRowLength(i);
+            indices = x.getIndices(i, indices);
+            for (int k = 0; k < length; k++) {
+                double value = x.getValue(i, k);
+                M[indices[k] - 1] += value * value * C[i] * D[i];
             }
         }
     }
@@ -62,18 +65,16 @@ class L2R_LrFunction extends L2R_ErmFunction {
         int i;
         int l = prob.l;
         int w_size = get_nr_variable();
-        Feature[][] x = prob.x;
 
-        for (i = 0; i < w_size; i++)
-            Hs[i] = 0;
-        for (i = 0; i < l; i++) {
-            Feature[] xi = x[i];
-            double xTs = SparseOperator.dot(s, xi);
+        sum_rows(l, (from, to, sum) -> {
+            for (int j = from; j < to; j++) {
+                double xTs = x.dot(j, s);
 
-            xTs = C[i] * D[i] * xTs;
+                xTs = C[j] * D[j] * xTs;
 
-            SparseOperator.axpy(xTs, xi, Hs);
-        }
+                x.axpy(xTs, j, sum);
+            }
+        }, Hs);
         for (i = 0; i < w_size; i++)
             Hs[i] = s[i] + Hs[i];
         if (!regularize_bias)
@@ -17,9 +17,13 @@ import java.util.Arrays;
 import java.util.Formatter;
 import java.util.Locale;
 import java.util.Random;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
 import de.bwaldvogel.liblinear.Heap.HeapType;
+import de.bwaldvogel.liblinear.SolverWorkspace.ByteArray;
+import de.bwaldvogel.liblinear.SolverWorkspace.DoubleArray;
+import de.bwaldvogel.liblinear.SolverWorkspace.IntArray;
 
 
 /**
@@ -44,9 +48,16 @@ public class Linear {
     private static       PrintStream DEBUG_OUTPUT = System.out;
 
     /**
+     * With {@link Parameter#setNumThreads(int)} &gt; 1, the folds are trained concurrently.
+     *
      * @param target predicted classes
      */
     public static void crossValidation(Problem prob, Parameter param, int nr_fold, double[] target) {
+        if (Parallel.isOutside(param.pool)) {
+            int folds = nr_fold;
+            Parallel.run(param.pool, () -> crossValidation(prob, param, folds, target));
+            return;
+        }
         int i;
         int l = prob.l;
         int[] perm = new int[l];
@@ -66,36 +77,37 @@ public class Linear {
         for (i = 0; i <= nr_fold; i++)
             fold_start[i] = i * l / nr_fold;
 
-        for (i = 0; i < nr_fold; i++) {
-            int begin = fold_start[i];
-            int end = fold_start[i + 1];
-            int j, k;
-            Problem subprob = new Problem();
-
-            subprob.bias = prob.bias;
-            subprob.n = prob.n;
-            subprob.l = l - (end - begin);
-            subprob.x = new Feature[subprob.l][];
-            subprob.y = new double[subprob.l];
-
-            k = 0;
-            for (j = 0; j < begin; j++) {
-                subprob.x[k] = prob.x[perm[j]];
-                subprob.y[k] = prob.y[perm[j]];
-                ++k;
-            }
-            for (j = end; j < l; j++) {
-                subprob.x[k] = prob.x[perm[j]];
-                subprob.y[k] = prob.y[perm[j]];
-                ++k;
-            }
-            Model submodel = train(subprob, param);
-            for (j = begin; j < end; j++)
-                target[perm[j]] = predict(submodel, prob.x[perm[j]]);
+        FeatureMatrix x = prob.rows();
+        if (param.nr_thread > 1) {
+            // the folds are trained concurrently; the seeds are drawn in fold order,
+            // so the random numbers of each fold do not depend on the number of threads
+            long[] seeds = new long[nr_fold];
+            for (i = 0; i < nr_fold; i++)
+                seeds[i] = param.random.nextLong();
+            Parallel.forEach(param.nr_thread, nr_fold, fold -> {
+                Parameter fold_param = param.clone();
+                fold_param.random = new Random(seeds[fold]);
+                crossValidationFold(prob, x, fold_param, perm, fold_start[fold], fold_start[fold + 1], target);
+            });
+        } else {
+            for (i = 0; i < nr_fold; i++)
+                crossValidationFold(prob, x, param, perm, fold_start[i], fold_start[i + 1], target);
         }
     }
 
+    private static void crossValidationFold(Problem prob, FeatureMatrix x, Parameter param, int[] perm, int begin, int end, double[] target) {
+        Problem subprob = createFoldProblem(prob, x, perm, begin, end);
+        Model submodel = train(subprob, param);
+        for (int j = begin; j < end; j++)
+            target[perm[j]] = predict(submodel, x, perm[j]);
+    }
+
     public static ParameterSearchResult findParameters(Problem prob, Parameter param, int nr_fold, double start_C, double start_p) {
+        if (Parallel.isOutside(param.pool)) {
+            int folds = nr_fold;
+            double C = start_C;
+            return Parallel.invoke(param.pool, () -> findParameters(prob, param, folds, C, start_p));
+        }
         double best_C = Double.NaN;
         double best_score = Double.NaN;
         // prepare CV folds
@@ -118,31 +130,11 @@ public class Linear {
         for (i = 0; i <= nr_fold; i++)
             fold_start[i] = i * l / nr_fold;
 
-        for (i = 0; i < nr_fold; i++) {
-            int begin = fold_start[i];
-            int end = fold_start[i + 1];
-            int j, k;
-
-            assert subprob[i] == null;
-            subprob[i] = new Problem();
-            subprob[i].bias = prob.bias;
-            subprob[i].n = prob.n;
-            subprob[i].l = l - (end - begin);
-            subprob[i].x = new Feature[subprob[i].l][];
-            subprob[i].y = new double[subprob[i].l];
-
-            k = 0;
-            for (j = 0; j < begin; j++) {
-                subprob[i].x[k] = prob.x[perm[j]];
-                subprob[i].y[k] = prob.y[perm[j]];
-                ++k;
-            }
-            for (j = end; j < l; j++) {
-                subprob[i].x[k] = prob.x[perm[j]];
-                subprob[i].y[k] = prob.y[perm[j]];
-                ++k;
-            }
-        }
+        FeatureMatrix x = prob.rows();
+        Parallel.forEach(param.nr_thread, nr_fold, fold -> {
+            assert subprob[fold] == null;
+            subprob[fold] = createFoldProblem(prob, x, perm, fold_start[fold], fold_start[fold + 1]);
+        });
 
         Parameter param_tmp = param.clone();
         double best_p = -1;
@@ -187,6 +179,36 @@ public class Linear {
         return new ParameterSearchResult(best_C, best_score, best_p);
     }
 
+    /**
+     * @return the subproblem that contains all instances except perm[begin] to perm[end-1]
+     */
+    private static Problem createFoldProblem(Problem prob, FeatureMatrix x, int[] perm, int begin, int end) {
+        int l = prob.l;
+        int j, k;
+        Problem subprob = new Problem();
+
+        subprob.bias = prob.bias;
+        subprob.n = prob.n;
+        subprob.l = l - (end - begin);
+        subprob.y = new double[subprob.l];
+        int[] rows = new int[subprob.l];
+
+        k = 0;
+        for (j = 0; j < begin; j++) {
+            rows[k] = perm[j];
+            subprob.y[k] = prob.y[perm[j]];
+            ++k;
+        }
+        for (j = end; j < l; j++) {
+            rows[k] = perm[j];
+            subprob.y[k] = prob.y[perm[j]];
+            ++k;
+        }
+        // the folds only refer to the rows of prob, so the search does not hold nr_fold copies of the feature vectors
+        subprob.matrix = x.view(rows);
+        return subprob;
+    }
+
     /** used as complex return type */
     private static class GroupClassesReturn {
 
@@ -421,32 +443,63 @@ public class Linear {
         return predictValues(model, x, dec_values);
     }
 
+    /**
+     * predicts the given row of the feature matrix
+     */
+    public static double predict(Model model, FeatureMatrix x, int row) {
+        double[] dec_values = new double[model.nr_class];
+        return predictValues(model, x, row, dec_values);
+    }
+
     /**
      * @throws IllegalArgumentException if model is not probabilistic (see {@link Model#isProbabilityModel()})
      */
     public static double predictProbability(Model model, Feature[] x, double[] prob_estimates) throws IllegalArgumentException {
-        if (!model.isProbabilityModel()) {
-            StringBuilder sb = new StringBuilder("probability output is only supported for logistic regression");
-            sb.append(". This is currently only supported by the following solvers: ");
-            int i = 0;
-            for (SolverType solverType : SolverType.values()) {
-                if (solverType.isLogisticRegressionSolver()) {
-                    if (i++ > 0) {
-                        sb.append(", ");
-                    }
-                    sb.append(solverType.name());
+        checkProbabilityModel(model);
+        double label = predictValues(model, x, prob_estimates);
+        toProbabilityEstimates(model.nr_class, prob_estimates);
+        return label;
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     *
+     * @throws IllegalArgumentException if model is not probabilistic (see {@link Model#isProbabilityModel()})
+     */
+    public static double predictProbability(Model model, FeatureMatrix x, int row, double[] prob_estimates) throws IllegalArgumentException {
+        checkProbabilityModel(model);
+        double label = predictValues(model, x, row, prob_estimates);
+        toProbabilityEstimates(model.nr_class, prob_estimates);
+        return label;
+    }
+
+    private static void checkProbabilityModel(Model model) {
+        if (!model.isProbabilityModel())
+            throw probabilityNotSupported();
+    }
+
+    static IllegalArgumentException probabilityNotSupported() {
+        StringBuilder sb = new StringBuilder("probability output is only supported for logistic regression");
+        sb.append(". This is currently only supported by the following solvers: ");
+        int i = 0;
+        for (SolverType solverType : SolverType.values()) {
+            if (solverType.isLogisticRegressionSolver()) {
+                if (i++ > 0) {
+                    sb.append(", ");
                 }
+                sb.append(solverType.name());
             }
-            throw new IllegalArgumentException(sb.toString());
         }
-        int nr_class = model.nr_class;
+        return new IllegalArgumentException(sb.toString());
+    }
+
+    static void toProbabilityEstimates(int nr_class, double[] prob_estimates) {
         int nr_w;
         if (nr_class == 2)
             nr_w = 1;
         else
             nr_w = nr_class;
 
-        double label = predictValues(model, x, prob_estimates);
         for (int i = 0; i < nr_w; i++)
             prob_estimates[i] = 1 / (1 + Math.exp(-prob_estimates[i]));
 
@@ -460,8 +513,6 @@ public class Linear {
             for (int i = 0; i < nr_class; i++)
                 prob_estimates[i] = prob_estimates[i] / sum;
         }
-
-        return label;
     }
 
     public static double predictValues(Model model, Feature[] x, double[] dec_values) {
@@ -491,6 +542,37 @@ public class Linear {
                 }
             }
         }
+
+        return decide(model, dec_values);
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     */
+    public static double predictValues(Model model, FeatureMatrix x, int row, double[] dec_values) {
+        int n;
+        if (model.bias >= 0)
+            n = model.nr_feature + 1;
+        else
+            n = model.nr_feature;
+
+        double[] w = model.w;
+
+        int nr_w;
+        if (model.nr_class == 2 && model.solverType != MCSVM_CS)
+            nr_w = 1;
+        else
+            nr_w = model.nr_class;
+
+        for (int i = 0; i < nr_w; i++)
+            dec_values[i] = 0;
+
+        x.addDecisionValues(row, w, n, nr_w, dec_values);
+
+        return decide(model, dec_values);
+    }
+
+    private static double decide(Model model, double[] dec_values) {
         if (model.solverType.isOneClass()) {
             dec_values[0] -= model.rho;
         }
@@ -604,6 +686,50 @@ public class Linear {
         return y[i] + 1;
     }
 
+    /**
+     * <p>The dual coordinate descent solvers can update the dual variables asynchronously in parallel
+     * (PASSCoDe-Atomic, see Hsieh et al., ICML 2015, and {@link Parameter#setAsyncDualCoordinateDescent(boolean)}):
+     * in each outer iteration, the active instances are shuffled and split into one contiguous block per thread.
+     * The threads update the dual variables of their own blocks concurrently and add the changes of w with atomic additions,
+     * while w is read without synchronization. Shrinking is done within each block, and the stopping criteria are evaluated
+     * on the combined projected gradients of all blocks after each outer iteration.</p>
+     *
+     * <p>With a single block, an outer iteration is identical to the sequential algorithm.</p>
+     *
+     * @return the number of blocks that the count active instances of an outer iteration are split into
+     */
+    private static int dual_num_blocks(Parameter param, int count) {
+        if (!param.async_dual_cd)
+            return 1;
+        return Parallel.numChunks(param.nr_thread, count);
+    }
+
+    /**
+     * moves the active instances of all blocks (index[begin] to index[begin + block_active[t] - 1] of each block t)
+     * in block order to the front of index[0..count); tmp must have at least count elements if there are multiple blocks
+     *
+     * @return the total number of active instances
+     */
+    private static int compact_active(int[] index, int[] tmp, int count, int num_blocks, int[] block_active) {
+        if (num_blocks == 1)
+            return block_active[0];
+
+        int pos = 0;
+        for (int t = 0; t < num_blocks; t++) {
+            System.arraycopy(index, Parallel.chunkStart(count, num_blocks, t), tmp, pos, block_active[t]);
+            pos += block_active[t];
+        }
+        int active_size = pos;
+        for (int t = 0; t < num_blocks; t++) {
+            int begin = Parallel.chunkStart(count, num_blocks, t) + block_active[t];
+            int end = Parallel.chunkStart(count, num_blocks, t + 1);
+            System.arraycopy(index, begin, tmp, pos, end - begin);
+            pos += end - begin;
+        }
+        System.arraycopy(tmp, 0, index, 0, count);
+        return active_size;
+    }
+
     /**
      * A coordinate descent algorithm for
      * L1-loss and L2-loss SVM dual problems
@@ -634,21 +760,25 @@ public class Linear {
      * See Algorithm 3 of Hsieh et al., ICML 2008
      *</pre>
      */
-    private static int solve_l2r_l1l2_svc(Problem prob, Parameter param, double[] w, double Cp, double Cn, int max_iter) {
+    private static int solve_l2r_l1l2_svc(Problem prob, Parameter param, double[] w, double Cp, double Cn, int max_iter, SolverWorkspace workspace) {
         int l = prob.l;
+        FeatureMatrix x = prob.rows();
         int w_size = prob.n;
         double eps = param.eps;
         SolverType solver_type = param.solverType;
-        int i, s, iter = 0;
-        double C, d, G;
-        double[] QD = new double[l];
-        int[] index = new int[l];
-        double[] alpha = new double[l];
-        byte[] y = new byte[l];
+        int i, iter = 0;
+        double[] QD = workspace.get(DoubleArray.DUAL_QD, l);
+        int[] index = workspace.get(IntArray.DUAL_INDEX, l);
+        int[] tmp_index = param.async_dual_cd ? workspace.get(IntArray.DUAL_TMP_INDEX, l) : null;
+        double[] alpha = workspace.get(DoubleArray.DUAL_ALPHA, l);
+        byte[] y = workspace.get(ByteArray.DUAL_Y, l);
         int active_size = l;
 
+        int[] block_active = new int[param.nr_thread];
+        double[] block_PGmax = new double[param.nr_thread];
+        double[] block_PGmin = new double[param.nr_thread];
+
         // PG: projected gradient, for shrinking and stopping
-        double PG;
         double PGmax_old = Double.POSITIVE_INFINITY;
         double PGmin_old = Double.NEGATIVE_INFINITY;
         double PGmax_new, PGmin_new;
@@ -676,69 +806,90 @@ public class Linear {
         for (i = 0; i < l; i++)
             alpha[i] = 0;
 
+        double[] row_norms = workspace.rowNorms(x, l);
         for (i = 0; i < w_size; i++)
             w[i] = 0;
         for (i = 0; i < l; i++) {
             QD[i] = diag[GETI(y, i)];
 
-            Feature[] xi = prob.x[i];
-            QD[i] += SparseOperator.nrm2_sq(xi);
-            SparseOperator.axpy(y[i] * alpha[i], xi, w);
+            QD[i] += row_norms[i];
+            x.axpy(y[i] * alpha[i], i, w);
 
             index[i] = i;
         }
 
         while (iter < max_iter) {
-            PGmax_new = Double.NEGATIVE_INFINITY;
-            PGmin_new = Double.POSITIVE_INFINITY;
-
             for (i = 0; i < active_size; i++) {
                 int j = i + param.random.nextInt(active_size - i);
                 swap(index, i, j);
             }
 
-            for (s = 0; s < active_size; s++) {
-                i = index[s];
-                byte yi = y[i];
-                Feature[] xi = prob.x[i];
+            int count = active_size;
+            int num_blocks = dual_num_blocks(param, count);
+            boolean atomic = num_blocks > 1;
+            double PGmax_bound = PGmax_old;
+            double PGmin_bound = PGmin_old;
+            Parallel.forChunks(num_blocks, count, (t, begin, end) -> {
+                double PGmax = Double.NEGATIVE_INFINITY;
+                double PGmin = Double.POSITIVE_INFINITY;
 
-                G = yi * SparseOperator.dot(w, xi) - 1;
+                for (int s = begin; s < end; s++) {
+                    int k = index[s];
+                    byte yk = y[k];
 
-                C = upper_bound[GETI(y, i)];
-                G += alpha[i] * diag[GETI(y, i)];
+                    double G = yk * x.dot(k, w) - 1;
 
-                PG = 0;
-                if (alpha[i] == 0) {
-                    if (G > PGmax_old) {
-                        active_size--;
-                        swap(index, s, active_size);
-                        s--;
-                        continue;
-                    } else if (G < 0) {
+                    double C = upper_bound[GETI(y, k)];
+                    G += alpha[k] * diag[GETI(y, k)];
+
+                    double PG = 0;
+                    if (alpha[k] == 0) {
+                        if (G > PGmax_bound) {
+                            end--;
+                            swap(index, s, end);
+                            s--;
+                            continue;
+                        } else if (G < 0) {
+                            PG = G;
+                        }
+                    } else if (alpha[k] == C) {
+                        if (G < PGmin_bound) {
+                            end--;
+                            swap(index, s, end);
+                            s--;
+                            continue;
+                        } else if (G > 0) {
+                            PG = G;
+                        }
+                    } else {
                         PG = G;
                     }
-                } else if (alpha[i] == C) {
-                    if (G < PGmin_old) {
-                        active_size--;
-                        swap(index, s, active_size);
-                        s--;
-                        continue;
-                    } else if (G > 0) {
-                        PG = G;
+
+                    PGmax = Math.max(PGmax, PG);
+                    PGmin = Math.min(PGmin, PG);
+
+                    if (Math.abs(PG) > 1.0e-12) {
+                        double alpha_old = alpha[k];
+                        alpha[k] = Math.min(Math.max(alpha[k] - G / QD[k], 0.0), C);
+                        double d = (alpha[k] - alpha_old) * yk;
+                        if (atomic)
+                            x.atomic_axpy(d, k, w);
+                        else
+                            x.axpy(d, k, w);
                     }
-                } else {
-                    PG = G;
                 }
 
-                PGmax_new = Math.max(PGmax_new, PG);
-                PGmin_new = Math.min(PGmin_new, PG);
+                block_active[t] = end - begin;
+                block_PGmax[t] = PGmax;
+                block_PGmin[t] = PGmin;
+            });
 
-                if (Math.abs(PG) > 1.0e-12) {
-                    double alpha_old = alpha[i];
-                    alpha[i] = Math.min(Math.max(alpha[i] - G / QD[i], 0.0), C);
-                    d = (alpha[i] - alpha_old) * yi;
-                    SparseOperator.axpy(d, xi, w);
-                }
+            active_size = compact_active(index, tmp_index, count, num_blocks, block_active);
+            PGmax_new = Double.NEGATIVE_INFINITY;
+            PGmin_new = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < num_blocks; t++) {
+                PGmax_new = Math.max(PGmax_new, block_PGmax[t]);
+                PGmin_new = Math.min(PGmin_new, block_PGmin[t]);
             }
 
             iter++;
@@ -816,23 +967,28 @@ public class Linear {
      *
      * See Algorithm 4 of Ho and Lin, 2012
      */
-    private static int solve_l2r_l1l2_svr(Problem prob, Parameter param, double[] w, int max_iter) {
+    private static int solve_l2r_l1l2_svr(Problem prob, Parameter param, double[] w, int max_iter, SolverWorkspace workspace) {
         SolverType solver_type = param.solverType;
         int l = prob.l;
+        FeatureMatrix x = prob.rows();
         double C = param.C;
         double p = param.p;
         int w_size = prob.n;
         double eps = param.eps;
-        int i, s, iter = 0;
+        int i, iter = 0;
         int active_size = l;
-        int[] index = new int[l];
+        int[] index = workspace.get(IntArray.DUAL_INDEX, l);
+        int[] tmp_index = param.async_dual_cd ? workspace.get(IntArray.DUAL_TMP_INDEX, l) : null;
+
+        int[] block_active = new int[param.nr_thread];
+        double[] block_Gmax = new double[param.nr_thread];
+        double[] block_Gnorm1 = new double[param.nr_thread];
 
-        double d, G, H;
         double Gmax_old = Double.POSITIVE_INFINITY;
         double Gmax_new, Gnorm1_new;
         double Gnorm1_init = -1.0; // Gnorm1_init is initialized at the first iteration
-        double[] beta = new double[l];
-        double[] QD = new double[l];
+        double[] beta = workspace.get(DoubleArray.DUAL_ALPHA, l);
+        double[] QD = workspace.get(DoubleArray.DUAL_QD, l);
         double[] y = prob.y;
 
         // L2R_L2LOSS_SVR_DUAL
@@ -851,90 +1007,112 @@ public class Linear {
         for (i = 0; i < l; i++)
             beta[i] = 0;
 
+        double[] row_norms = workspace.rowNorms(x, l);
         for (i = 0; i < w_size; i++)
             w[i] = 0;
         for (i = 0; i < l; i++) {
-            Feature[] xi = prob.x[i];
-            QD[i] = SparseOperator.nrm2_sq(xi);
-            SparseOperator.axpy(beta[i], xi, w);
+            QD[i] = row_norms[i];
+            x.axpy(beta[i], i, w);
 
             index[i] = i;
         }
 
         while (iter < max_iter) {
-            Gmax_new = 0;
-            Gnorm1_new = 0;
-
             for (i = 0; i < active_size; i++) {
                 int j = i + param.random.nextInt(active_size - i);
                 swap(index, i, j);
             }
 
-            for (s = 0; s < active_size; s++) {
-                i = index[s];
-                G = -y[i] + lambda[GETI_SVR(i)] * beta[i];
-                H = QD[i] + lambda[GETI_SVR(i)];
+            int count = active_size;
+            int num_blocks = dual_num_blocks(param, count);
+            boolean atomic = num_blocks > 1;
+            double Gmax_bound = Gmax_old;
+            Parallel.forChunks(num_blocks, count, (t, begin, end) -> {
+                double Gmax = 0;
+                double Gnorm1 = 0;
 
-                Feature[] xi = prob.x[i];
-                G += SparseOperator.dot(w, xi);
+                for (int s = begin; s < end; s++) {
+                    int k = index[s];
+                    double G = -y[k] + lambda[GETI_SVR(k)] * beta[k];
+                    double H = QD[k] + lambda[GETI_SVR(k)];
 
-                double Gp = G + p;
-                double Gn = G - p;
-                double violation = 0;
-                if (beta[i] == 0) {
-                    if (Gp < 0)
-                        violation = -Gp;
-                    else if (Gn > 0)
-                        violation = Gn;
-                    else if (Gp > Gmax_old && Gn < -Gmax_old) {
-                        active_size--;
-                        swap(index, s, active_size);
-                        s--;
-                        continue;
-                    }
-                } else if (beta[i] >= upper_bound[GETI_SVR(i)]) {
-                    if (Gp > 0)
-                        violation = Gp;
-                    else if (Gp < -Gmax_old) {
-                        active_size--;
-                        swap(index, s, active_size);
-                        s--;
-                        continue;
-                    }
-                } else if (beta[i] <= -upper_bound[GETI_SVR(i)]) {
-                    if (Gn < 0)
-                        violation = -Gn;
-                    else if (Gn > Gmax_old) {
-                        active_size--;
-                        swap(index, s, active_size);
-                        s--;
-                        continue;
-                    }
-                } else if (beta[i] > 0)
-                    violation = Math.abs(Gp);
-                else
-                    violation = Math.abs(Gn);
+                    G += x.dot(k, w);
 
-                Gmax_new = Math.max(Gmax_new, violation);
-                Gnorm1_new += violation;
+                    double Gp = G + p;
+                    double Gn = G - p;
+                    double violation = 0;
+                    if (beta[k] == 0) {
+                        if (Gp < 0)
+                            violation = -Gp;
+                        else if (Gn > 0)
+                            violation = Gn;
+                        else if (Gp > Gmax_bound && Gn < -Gmax_bound) {
+                            end--;
+                            swap(index, s, end);
+                            s--;
+                            continue;
+                        }
+                    } else if (beta[k] >= upper_bound[GETI_SVR(k)]) {
+                        if (Gp > 0)
+                            violation = Gp;
+                        else if (Gp < -Gmax_bound) {
+                            end--;
+                            swap(index, s, end);
+                            s--;
+                            continue;
+                        }
+                    } else if (beta[k] <= -upper_bound[GETI_SVR(k)]) {
+                        if (Gn < 0)
+                            violation = -Gn;
+                        else if (Gn > Gmax_bound) {
+                            end--;
+                            swap(index, s, end);
+                            s--;
+                            continue;
+                        }
+                    } else if (beta[k] > 0)
+                        violation = Math.abs(Gp);
+                    else
+                        violation = Math.abs(Gn);
 
-                // obtain Newton direction d
-                if (Gp < H * beta[i])
-                    d = -Gp / H;
-                else if (Gn > H * beta[i])
-                    d = -Gn / H;
-                else
-                    d = -beta[i];
+                    Gmax = Math.max(Gmax, violation);
+                    Gnorm1 += violation;
 
-                if (Math.abs(d) < 1.0e-12)
-                    continue;
+                    // obtain Newton direction d
+                    double d;
+                    if (Gp < H * beta[k])
+                        d = -Gp / H;
+                    else if (Gn > H * beta[k])
+                        d = -Gn / H;
+                    else
+                        d = -beta[k];
+
+                    if (Math.abs(d) < 1.0e-12)
+                        continue;
 
-                double beta_old = beta[i];
-                beta[i] = Math.min(Math.max(beta[i] + d, -upper_bound[GETI_SVR(i)]), upper_bound[GETI_SVR(i)]);
-                d = beta[i] - beta_old;
+                    double beta_old = beta[k];
+                    beta[k] = Math.min(Math.max(beta[k] + d, -upper_bound[GETI_SVR(k)]), upper_bound[GETI_SVR(k)]);
+                    d = beta[k] - beta_old;
 
-                if (d != 0)
-                    SparseOperator.axpy(d, xi, w);
+                    if (d != 0) {
+                        if (atomic)
+                            x.atomic_axpy(d, k, w);
+                        else
+                            x.axpy(d, k, w);
+                    }
+                }
+
+                block_active[t] = end - begin;
+                block_Gmax[t] = Gmax;
+                block_Gnorm1[t] = Gnorm1;
+            });
+
+            active_size = compact_active(index, tmp_index, count, num_blocks, block_active);
+            Gmax_new = 0;
+            Gnorm1_new = 0;
+            for (int t = 0; t < num_blocks; t++) {
+                Gmax_new = Math.max(Gmax_new, block_Gmax[t]);
+                Gnorm1_new += block_Gnorm1[t];
             }
 
             if (iter == 0)
@@ -1001,20 +1179,24 @@ public class Linear {
      *
      * @since 1.7
      */
-    private static int solve_l2r_lr_dual(Problem prob, Parameter param, double[] w, double Cp, double Cn, int max_iter) {
+    private static int solve_l2r_lr_dual(Problem prob, Parameter param, double[] w, double Cp, double Cn, int max_iter, SolverWorkspace workspace) {
         int l = prob.l;
+        FeatureMatrix x = prob.rows();
         int w_size = prob.n;
         double eps = param.eps;
-        int i, s, iter = 0;
-        double[] xTx = new double[l];
-        int[] index = new int[l];
-        double[] alpha = new double[2 * l]; // store alpha and C - alpha
-        byte[] y = new byte[l];
+        int i, iter = 0;
+        double[] xTx = workspace.get(DoubleArray.DUAL_QD, l);
+        int[] index = workspace.get(IntArray.DUAL_INDEX, l);
+        double[] alpha = workspace.get(DoubleArray.DUAL_ALPHA, 2 * l); // store alpha and C - alpha
+        byte[] y = workspace.get(ByteArray.DUAL_Y, l);
         int max_inner_iter = 100; // for inner Newton
         double innereps = 1e-2;
         double innereps_min = Math.min(1e-8, eps);
         double[] upper_bound = new double[] {Cn, 0, Cp};
 
+        double[] block_Gmax = new double[param.nr_thread];
+        int[] block_newton_iter = new int[param.nr_thread];
+
         for (i = 0; i < l; i++) {
             if (prob.y[i] > 0) {
                 y[i] = +1;
@@ -1031,71 +1213,91 @@ public class Linear {
             alpha[2 * i + 1] = upper_bound[GETI(y, i)] - alpha[2 * i];
         }
 
+        double[] row_norms = workspace.rowNorms(x, l);
         for (i = 0; i < w_size; i++)
             w[i] = 0;
         for (i = 0; i < l; i++) {
-            Feature[] xi = prob.x[i];
-            xTx[i] = SparseOperator.nrm2_sq(xi);
-            SparseOperator.axpy(y[i] * alpha[2 * i], xi, w);
+            xTx[i] = row_norms[i];
+            x.axpy(y[i] * alpha[2 * i], i, w);
             index[i] = i;
         }
 
+        // there is no shrinking, so the blocks stay the same
+        int num_blocks = dual_num_blocks(param, l);
+        boolean atomic = num_blocks > 1;
         while (iter < max_iter) {
             for (i = 0; i < l; i++) {
                 int j = i + param.random.nextInt(l - i);
                 swap(index, i, j);
             }
-            int newton_iter = 0;
-            double Gmax = 0;
-            for (s = 0; s < l; s++) {
-                i = index[s];
-                final byte yi = y[i];
-                double C = upper_bound[GETI(y, i)];
-                double ywTx = 0, xisq = xTx[i];
-                Feature[] xi = prob.x[i];
-                ywTx = yi * SparseOperator.dot(w, xi);
-                double a = xisq, b = ywTx;
-
-                // Decide to minimize g_1(z) or g_2(z)
-                int ind1 = 2 * i, ind2 = 2 * i + 1, sign = 1;
-                if (0.5 * a * (alpha[ind2] - alpha[ind1]) + b < 0) {
-                    ind1 = 2 * i + 1;
-                    ind2 = 2 * i;
-                    sign = -1;
-                }
 
-                //  g_t(z) = z*log(z) + (C-z)*log(C-z) + 0.5a(z-alpha_old)^2 + sign*b(z-alpha_old)
-                double alpha_old = alpha[ind1];
-                double z = alpha_old;
-                if (C - z < 0.5 * C)
-                    z = 0.1 * z;
-                double gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
-                Gmax = Math.max(Gmax, Math.abs(gp));
-
-                // Newton method on the sub-problem
-                final double eta = 0.1; // xi in the paper
-                int inner_iter = 0;
-                while (inner_iter <= max_inner_iter) {
-                    if (Math.abs(gp) < innereps)
-                        break;
-                    double gpp = a + C / (C - z) / z;
-                    double tmpz = z - gp / gpp;
-                    if (tmpz <= 0)
-                        z *= eta;
-                    else
-                        // tmpz in (0, C)
-                        z = tmpz;
-                    gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
-                    newton_iter++;
-                    inner_iter++;
-                }
+            double inner_eps = innereps;
+            Parallel.forChunks(num_blocks, l, (t, begin, end) -> {
+                int newton_iter = 0;
+                double Gmax = 0;
+
+                for (int s = begin; s < end; s++) {
+                    int k = index[s];
+                    final byte yk = y[k];
+                    double C = upper_bound[GETI(y, k)];
+                    double ywTx = 0, xisq = xTx[k];
+                    ywTx = yk * x.dot(k, w);
+                    double a = xisq, b = ywTx;
+
+                    // Decide to minimize g_1(z) or g_2(z)
+                    int ind1 = 2 * k, ind2 = 2 * k + 1, sign = 1;
+                    if (0.5 * a * (alpha[ind2] - alpha[ind1]) + b < 0) {
+                        ind1 = 2 * k + 1;
+                        ind2 = 2 * k;
+                        sign = -1;
+                    }
 
-                if (inner_iter > 0) // update w
-                {
-                    alpha[ind1] = z;
-                    alpha[ind2] = C - z;
-                    SparseOperator.axpy(sign * (z - alpha_old) * yi, xi, w);
+                    //  g_t(z) = z*log(z) + (C-z)*log(C-z) + 0.5a(z-alpha_old)^2 + sign*b(z-alpha_old)
+                    double alpha_old = alpha[ind1];
+                    double z = alpha_old;
+                    if (C - z < 0.5 * C)
+                        z = 0.1 * z;
+                    double gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
+                    Gmax = Math.max(Gmax, Math.abs(gp));
+
+                    // Newton method on the sub-problem
+                    final double eta = 0.1; // xi in the paper
+                    int inner_iter = 0;
+                    while (inner_iter <= max_inner_iter) {
+                        if (Math.abs(gp) < inner_eps)
+                            break;
+                        double gpp = a + C / (C - z) / z;
+                        double tmpz = z - gp / gpp;
+                        if (tmpz <= 0)
+                            z *= eta;
+                        else
+                            // tmpz in (0, C)
+                            z = tmpz;
+                        gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
+                        newton_iter++;
+                        inner_iter++;
+                    }
+
+                    if (inner_iter > 0) // update w
+                    {
+                        alpha[ind1] = z;
+                        alpha[ind2] = C - z;
+                        if (atomic)
+                            x.atomic_axpy(sign * (z - alpha_old) * yk, k, w);
+                        else
+                            x.axpy(sign * (z - alpha_old) * yk, k, w);
+                    }
                 }
+
+                block_Gmax[t] = Gmax;
+                block_newton_iter[t] = newton_iter;
+            });
+
+            int newton_iter = 0;
+            double Gmax = 0;
+            for (int t = 0; t < num_blocks; t++) {
+                newton_iter += block_newton_iter[t];
+                Gmax = Math.max(Gmax, block_Gmax[t]);
             }
 
             iter++;
@@ -1150,11 +1352,15 @@ public class Linear {
      *
      * @since 1.5
      */
-    private static int solve_l1r_l2_svc(Problem prob_col, Parameter param, double[] w,
+    private static int solve_l1r_l2_svc(Problem prob, CsrMatrix x_col, Parameter param, double[] w,
         double Cp, double Cn, double eps, int max_iter) {
-        int l = prob_col.l;
-        int w_size = prob_col.n;
+        int l = prob.l;
+        int w_size = prob.n;
+        int[] col_ptr = x_col.rowPtr;
+        int[] row_index = x_col.indices;
+        double[] x_value = x_col.values;
         boolean regularize_bias = param.regularize_bias;
+        int nr_thread = param.nr_thread;
         int j, s, iter = 0;
         int active_size = w_size;
         int max_num_linesearch = 20;
@@ -1173,6 +1379,7 @@ public class Linear {
         byte[] y = new byte[l];
         double[] b = new double[l]; // b = 1-ywTx
         double[] xj_sq = new double[w_size];
+        double[] column_sum = new double[2];
 
         double[] C = new double[] {Cn, 0, Cp};
 
@@ -1182,7 +1389,7 @@ public class Linear {
 
         for (j = 0; j < l; j++) {
             b[j] = 1;
-            if (prob_col.y[j] > 0)
+            if (prob.y[j] > 0)
                 y[j] = 1;
             else
                 y[j] = -1;
@@ -1190,10 +1397,9 @@ public class Linear {
         for (j = 0; j < w_size; j++) {
             index[j] = j;
             xj_sq[j] = 0;
-            for (Feature xi : prob_col.x[j]) {
-                int ind = xi.getIndex() - 1;
-                xi.setValue(xi.getValue() * y[ind]); // x->value stores yi*xij
-                double val = xi.getValue();
+            for (int k = col_ptr[j]; k < col_ptr[j + 1]; k++) {
+                int ind = row_index[k] - 1;
+                double val = x_value[k] * y[ind]; // yi*xij
                 b[ind] -= w[j] * val;
 
                 xj_sq[j] += C[GETI(y, ind)] * val * val;
@@ -1211,16 +1417,38 @@ public class Linear {
 
             for (s = 0; s < active_size; s++) {
                 j = index[s];
-                G_loss = 0;
-                H = 0;
-
-                for (Feature xi : prob_col.x[j]) {
-                    int ind = xi.getIndex() - 1;
-                    if (b[ind] > 0) {
-                        double val = xi.getValue();
-                        double tmp = C[GETI(y, ind)] * val;
-                        G_loss -= tmp * b[ind];
-                        H += tmp * val;
+                int col_begin = col_ptr[j];
+                int col_end = col_ptr[j + 1];
+                // long columns are split between the threads
+                boolean parallel_column = Parallel.numChunks(nr_thread, col_end - col_begin) > 1;
+                if (parallel_column) {
+                    column_sum[0] = 0;
+                    column_sum[1] = 0;
+                    Parallel.sum(nr_thread, col_end - col_begin, (from, to, partial) -> {
+                        for (int k = col_begin + from; k < col_begin + to; k++) {
+                            int ind = row_index[k] - 1;
+                            if (b[ind] > 0) {
+                                double val = x_value[k] * y[ind];
+                                double tmp = C[GETI(y, ind)] * val;
+                                partial[0] -= tmp * b[ind];
+                                partial[1] += tmp * val;
+                            }
+                        }
+                    }, column_sum);
+                    G_loss = column_sum[0];
+                    H = column_sum[1];
+                } else {
+                    G_loss = 0;
+                    H = 0;
+
+                    for (int k = col_begin; k < col_end; k++) {
+                        int ind = row_index[k] - 1;
+                        if (b[ind] > 0) {
+                            double val = x_value[k] * y[ind];
+                            double tmp = C[GETI(y, ind)] * val;
+                            G_loss -= tmp * b[ind];
+                            H += tmp * val;
+                        }
                     }
                 }
                 G_loss *= 2;
@@ -1286,20 +1514,53 @@ public class Linear {
 
                     appxcond = xj_sq[j] * d * d + G_loss * d + cond;
                     if (appxcond <= 0) {
-                        Feature[] x = prob_col.x[j];
-                        SparseOperator.axpy(d_diff, x, b);
+                        if (parallel_column) {
+                            double step = d_diff;
+                            Parallel.forRange(nr_thread, col_end - col_begin, (from, to) -> {
+                                for (int k = col_begin + from; k < col_begin + to; k++) {
+                                    int ind = row_index[k] - 1;
+                                    b[ind] += step * (x_value[k] * y[ind]);
+                                }
+                            });
+                        } else {
+                            for (int k = col_begin; k < col_end; k++) {
+                                int ind = row_index[k] - 1;
+                                b[ind] += d_diff * (x_value[k] * y[ind]);
+                            }
+                        }
                         break;
                     }
 
-                    if (num_linesearch == 0) {
+                    if (parallel_column) {
+                        double step = d_diff;
+                        boolean first = num_linesearch == 0;
+                        column_sum[0] = 0;
+                        column_sum[1] = 0;
+                        Parallel.sum(nr_thread, col_end - col_begin, (from, to, partial) -> {
+                            for (int k = col_begin + from; k < col_begin + to; k++) {
+                                int ind = row_index[k] - 1;
+                                if (first && b[ind] > 0) {
+                                    partial[0] += C[GETI(y, ind)] * b[ind] * b[ind];
+                                }
+                                double b_new = b[ind] + step * (x_value[k] * y[ind]);
+                                b[ind] = b_new;
+                                if (b_new > 0) {
+                                    partial[1] += C[GETI(y, ind)] * b_new * b_new;
+                                }
+                            }
+                        }, column_sum);
+                        if (first)
+                            loss_old = column_sum[0];
+                        loss_new = column_sum[1];
+                    } else if (num_linesearch == 0) {
                         loss_old = 0;
                         loss_new = 0;
-                        for (Feature x : prob_col.x[j]) {
-                            int ind = x.getIndex() - 1;
+                        for (int k = col_begin; k < col_end; k++) {
+                            int ind = row_index[k] - 1;
                             if (b[ind] > 0) {
                                 loss_old += C[GETI(y, ind)] * b[ind] * b[ind];
                             }
-                            double b_new = b[ind] + d_diff * x.getValue();
+                            double b_new = b[ind] + d_diff * (x_value[k] * y[ind]);
                             b[ind] = b_new;
                             if (b_new > 0) {
                                 loss_new += C[GETI(y, ind)] * b_new * b_new;
@@ -1307,9 +1568,9 @@ public class Linear {
                         }
                     } else {
                         loss_new = 0;
-                        for (Feature x : prob_col.x[j]) {
-                            int ind = x.getIndex() - 1;
-                            double b_new = b[ind] + d_diff * x.getValue();
+                        for (int k = col_begin; k < col_end; k++) {
+                            int ind = row_index[k] - 1;
+                            double b_new = b[ind] + d_diff * (x_value[k] * y[ind]);
                             b[ind] = b_new;
                             if (b_new > 0) {
                                 loss_new += C[GETI(y, ind)] * b_new * b_new;
@@ -1338,8 +1599,10 @@ public class Linear {
                     for (int i = 0; i < w_size; i++) {
                         if (w[i] == 0)
                             continue;
-                        Feature[] x = prob_col.x[i];
-                        SparseOperator.axpy(-w[i], x, b);
+                        for (int k = col_ptr[i]; k < col_ptr[i + 1]; k++) {
+                            int ind = row_index[k] - 1;
+                            b[ind] += -w[i] * (x_value[k] * y[ind]);
+                        }
                     }
                 }
             }
@@ -1374,9 +1637,6 @@ public class Linear {
         double v = 0;
         int nnz = 0;
         for (j = 0; j < w_size; j++) {
-            for (Feature x : prob_col.x[j]) {
-                x.setValue(x.getValue() * prob_col.y[x.getIndex() - 1]); // restore x->value
-            }
             if (w[j] != 0) {
                 v += Math.abs(w[j]);
                 nnz++;
@@ -1417,10 +1677,14 @@ public class Linear {
      *
      * @since 1.5
      */
-    private static int solve_l1r_lr(Problem prob_col, Parameter param, double[] w, double Cp, double Cn, double eps, int max_iter) {
-        int l = prob_col.l;
-        int w_size = prob_col.n;
+    private static int solve_l1r_lr(Problem prob, CsrMatrix x_col, Parameter param, double[] w, double Cp, double Cn, double eps, int max_iter) {
+        int l = prob.l;
+        int w_size = prob.n;
+        int[] col_ptr = x_col.rowPtr;
+        int[] row_index = x_col.indices;
+        double[] x_value = x_col.values;
         boolean regularize_bias = param.regularize_bias;
+        int nr_thread = param.nr_thread;
         int j, s, newton_iter = 0, iter = 0;
         int max_newton_iter = 100;
         int max_num_linesearch = 20;
@@ -1450,6 +1714,7 @@ public class Linear {
         double[] exp_wTx_new = new double[l];
         double[] tau = new double[l];
         double[] D = new double[l];
+        double[] column_sum = new double[1];
 
         double[] C = {Cn, 0, Cp};
 
@@ -1458,7 +1723,7 @@ public class Linear {
             w[j] = 0;
 
         for (j = 0; j < l; j++) {
-            if (prob_col.y[j] > 0)
+            if (prob.y[j] > 0)
                 y[j] = 1;
             else
                 y[j] = -1;
@@ -1472,9 +1737,9 @@ public class Linear {
             wpd[j] = w[j];
             index[j] = j;
             xjneg_sum[j] = 0;
-            for (Feature x : prob_col.x[j]) {
-                int ind = x.getIndex() - 1;
-                double val = x.getValue();
+            for (int k = col_ptr[j]; k < col_ptr[j + 1]; k++) {
+                int ind = row_index[k] - 1;
+                double val = x_value[k];
                 exp_wTx[ind] += w[j] * val;
                 if (y[ind] == -1) {
                     xjneg_sum[j] += C[GETI(y, ind)] * val;
@@ -1496,18 +1761,23 @@ public class Linear {
             Gnorm1_new = 0;
             active_size = w_size;
 
+            // the columns are independent of each other; each thread takes a contiguous range of them
+            Parallel.forRange(nr_thread, w_size, (from, to) -> {
+                for (int k = from; k < to; k++) {
+                    double Hdiag_k = nu;
+                    double tmp = 0;
+                    for (int p = col_ptr[k]; p < col_ptr[k + 1]; p++) {
+                        int ind = row_index[p] - 1;
+                        Hdiag_k += x_value[p] * x_value[p] * D[ind];
+                        tmp += x_value[p] * tau[ind];
+                    }
+                    Hdiag[k] = Hdiag_k;
+                    Grad[k] = -tmp + xjneg_sum[k];
+                }
+            });
+
             for (s = 0; s < active_size; s++) {
                 j = index[s];
-                Hdiag[j] = nu;
-                Grad[j] = 0;
-
-                double tmp = 0;
-                for (Feature x : prob_col.x[j]) {
-                    int ind = x.getIndex() - 1;
-                    Hdiag[j] += x.getValue() * x.getValue() * D[ind];
-                    tmp += x.getValue() * tau[ind];
-                }
-                Grad[j] = -tmp + xjneg_sum[j];
 
                 double violation = 0;
                 if (j == w_size - 1 && !regularize_bias)
@@ -1564,9 +1834,24 @@ public class Linear {
                     H = Hdiag[j];
 
                     G = Grad[j] + (wpd[j] - w[j]) * nu;
-                    for (Feature x : prob_col.x[j]) {
-                        int ind = x.getIndex() - 1;
-                        G += x.getValue() * D[ind] * xTd[ind];
+                    int col_begin = col_ptr[j];
+                    int col_end = col_ptr[j + 1];
+                    // long columns are split between the threads
+                    boolean parallel_column = Parallel.numChunks(nr_thread, col_end - col_begin) > 1;
+                    if (parallel_column) {
+                        column_sum[0] = G;
+                        Parallel.sum(nr_thread, col_end - col_begin, (from, to, partial) -> {
+                            for (int k = col_begin + from; k < col_begin + to; k++) {
+                                int ind = row_index[k] - 1;
+                                partial[0] += x_value[k] * D[ind] * xTd[ind];
+                            }
+                        }, column_sum);
+                        G = column_sum[0];
+                    } else {
+                        for (int k = col_begin; k < col_end; k++) {
+                            int ind = row_index[k] - 1;
+                            G += x_value[k] * D[ind] * xTd[ind];
+                        }
                     }
 
                     double violation = 0;
@@ -1612,8 +1897,13 @@ public class Linear {
 
                     wpd[j] += z;
 
-                    Feature[] x = prob_col.x[j];
-                    SparseOperator.axpy(z, x, xTd);
+                    if (parallel_column) {
+                        double step = z;
+                        Parallel.forRange(nr_thread, col_end - col_begin,
+                            (from, to) -> SparseOperator.axpy(step, row_index, x_value, col_begin + from, col_begin + to, xTd));
+                    } else {
+                        SparseOperator.axpy(z, row_index, x_value, col_begin, col_end, xTd);
+                    }
                 }
 
                 iter++;
@@ -1648,31 +1938,40 @@ public class Linear {
                 w_norm_new -= Math.abs(wpd[w_size - 1]);
             delta += (w_norm_new - w_norm);
 
-            negsum_xTd = 0;
-            for (int i = 0; i < l; i++)
-                if (y[i] == -1)
-                    negsum_xTd += C[GETI(y, i)] * xTd[i];
+            // the sums over the instances are reduced in a fixed order (see Parallel.sum)
+            double[] sum = new double[1];
+            Parallel.sum(nr_thread, l, (from, to, partial) -> {
+                for (int i = from; i < to; i++)
+                    if (y[i] == -1)
+                        partial[0] += C[GETI(y, i)] * xTd[i];
+            }, sum);
+            negsum_xTd = sum[0];
 
             int num_linesearch;
             for (num_linesearch = 0; num_linesearch < max_num_linesearch; num_linesearch++) {
-                cond = w_norm_new - w_norm + negsum_xTd - sigma * delta;
+                sum[0] = w_norm_new - w_norm + negsum_xTd - sigma * delta;
 
-                for (int i = 0; i < l; i++) {
-                    double exp_xTd = Math.exp(xTd[i]);
-                    exp_wTx_new[i] = exp_wTx[i] * exp_xTd;
-                    cond += C[GETI(y, i)] * Math.log((1 + exp_wTx_new[i]) / (exp_xTd + exp_wTx_new[i]));
-                }
+                Parallel.sum(nr_thread, l, (from, to, partial) -> {
+                    for (int i = from; i < to; i++) {
+                        double exp_xTd = Math.exp(xTd[i]);
+                        exp_wTx_new[i] = exp_wTx[i] * exp_xTd;
+                        partial[0] += C[GETI(y, i)] * Math.log((1 + exp_wTx_new[i]) / (exp_xTd + exp_wTx_new[i]));
+                    }
+                }, sum);
+                cond = sum[0];
 
                 if (cond <= 0) {
                     w_norm = w_norm_new;
                     for (j = 0; j < w_size; j++)
                         w[j] = wpd[j];
-                    for (int i = 0; i < l; i++) {
-                        exp_wTx[i] = exp_wTx_new[i];
-                        double tau_tmp = 1 / (1 + exp_wTx[i]);
-                        tau[i] = C[GETI(y, i)] * tau_tmp;
-                        D[i] = C[GETI(y, i)] * exp_wTx[i] * tau_tmp * tau_tmp;
-                    }
+                    Parallel.forRange(nr_thread, l, (from, to) -> {
+                        for (int i = from; i < to; i++) {
+                            exp_wTx[i] = exp_wTx_new[i];
+                            double tau_tmp = 1 / (1 + exp_wTx[i]);
+                            tau[i] = C[GETI(y, i)] * tau_tmp;
+                            D[i] = C[GETI(y, i)] * exp_wTx[i] * tau_tmp * tau_tmp;
+                        }
+                    });
                     break;
                 } else {
                     w_norm_new = 0;
@@ -1685,8 +1984,10 @@ public class Linear {
                         w_norm_new -= Math.abs(wpd[w_size - 1]);
                     delta *= 0.5;
                     negsum_xTd *= 0.5;
-                    for (int i = 0; i < l; i++)
-                        xTd[i] *= 0.5;
+                    Parallel.forRange(nr_thread, l, (from, to) -> {
+                        for (int i = from; i < to; i++)
+                            xTd[i] *= 0.5;
+                    });
                 }
             }
 
@@ -1698,8 +1999,7 @@ public class Linear {
                 for (int i = 0; i < w_size; i++) {
                     if (w[i] == 0)
                         continue;
-                    Feature[] x = prob_col.x[i];
-                    SparseOperator.axpy(w[i], x, exp_wTx);
+                    SparseOperator.axpy(w[i], row_index, x_value, col_ptr[i], col_ptr[i + 1], exp_wTx);
                 }
 
                 for (int i = 0; i < l; i++)
@@ -1768,6 +2068,7 @@ public class Linear {
      */
     static int solve_oneclass_svm(Problem prob, Parameter param, double[] w, MutableDouble rho, int max_iter) {
         int l = prob.l;
+        FeatureMatrix x = prob.rows();
         int w_size = prob.n;
         double eps = param.eps;
         double nu = param.nu;
@@ -1799,9 +2100,8 @@ public class Linear {
         for (i = 0; i < w_size; i++)
             w[i] = 0;
         for (i = 0; i < l; i++) {
-            Feature[] xi = prob.x[i];
-            QD[i] = SparseOperator.nrm2_sq(xi);
-            SparseOperator.axpy(alpha[i], xi, w);
+            QD[i] = x.nrm2_sq(i);
+            x.axpy(alpha[i], i, w);
 
             index[i] = i;
         }
@@ -1812,8 +2112,7 @@ public class Linear {
 
             for (s = 0; s < active_size; s++) {
                 i = index[s];
-                Feature[] xi = prob.x[i];
-                G[i] = SparseOperator.dot(w, xi);
+                G[i] = x.dot(i, w);
                 if (alpha[i] < 1)
                     negGmax = Math.max(negGmax, -G[i]);
                 if (alpha[i] > 0)
@@ -1887,11 +2186,9 @@ public class Linear {
                     (alpha[i] == 1 && alpha[j] == 1))
                     continue;
 
-                Feature[] xi = prob.x[i];
-                Feature[] xj = prob.x[j];
 
-                Gi = SparseOperator.dot(w, xi);
-                Gj = SparseOperator.dot(w, xj);
+                Gi = x.dot(i, w);
+                Gj = x.dot(j, w);
 
                 int violating_pair = 0;
                 if (alpha[i] < 1 && alpha[j] > 0 && -Gj + 1e-12 < -Gi)
@@ -1901,7 +2198,7 @@ public class Linear {
                 if (violating_pair == 0)
                     continue;
 
-                Qij = SparseOperator.sparse_dot(xi, xj);
+                Qij = x.sparse_dot(i, j);
                 quad_coef = QD[i] + QD[j] - 2 * Qij;
                 if (quad_coef <= 0)
                     quad_coef = 1e-12;
@@ -1933,8 +2230,8 @@ public class Linear {
                     }
                 }
                 delta = alpha[i] - old_alpha_i;
-                SparseOperator.axpy(delta, xi, w);
-                SparseOperator.axpy(-delta, xj, w);
+                x.axpy(delta, i, w);
+                x.axpy(-delta, j, w);
             }
             iter++;
             if (iter % 10 == 0)
@@ -1960,7 +2257,7 @@ public class Linear {
         double nr_free = 0;
         double ub = Double.POSITIVE_INFINITY, lb = Double.NEGATIVE_INFINITY, sum_free = 0;
         for (i = 0; i < l; i++) {
-            double G_ = SparseOperator.dot(w, prob.x[i]);
+            double G_ = x.dot(i, w);
             if (alpha[i] == 1)
                 lb = Math.max(lb, G_);
             else if (alpha[i] == 0)
@@ -1981,41 +2278,87 @@ public class Linear {
         return iter;
     }
 
-    // transpose matrix X from row format to column format
-    static Problem transpose(Problem prob) {
+    /**
+     * transposes the feature matrix X from row format to column format
+     *
+     * @see #transpose(Problem, int)
+     */
+    static CsrMatrix transpose(Problem prob) {
+        return transpose(prob, 1);
+    }
+
+    /**
+     * <p>Transposes the feature matrix X from row format to column format: row j-1 of the result holds the non-zero values of
+     * feature j as (1-based) instance indices and values, sorted by instance.</p>
+     *
+     * <p>The rows are split into contiguous chunks. Each chunk counts its features in its own histogram,
+     * the histograms are turned into the write positions of the chunks, and the chunks then scatter their
+     * entries in parallel. Since the chunks are ordered by instance, the result does not depend on the number of threads.
+     * To limit the memory of the histograms, the number of chunks is reduced for very sparse data.</p>
+     */
+    static CsrMatrix transpose(Problem prob, int nr_thread) {
         int l = prob.l;
         int n = prob.n;
-        int[] col_ptr = new int[n + 1];
-        Problem prob_col = new Problem();
-        prob_col.l = l;
-        prob_col.n = n;
-        prob_col.y = new double[l];
-        prob_col.x = new Feature[n][];
+        FeatureMatrix x = prob.rows();
 
+        long nnz = 0;
         for (int i = 0; i < l; i++)
-            prob_col.y[i] = prob.y[i];
-
-        for (int i = 0; i < l; i++) {
-            for (Feature x : prob.x[i]) {
-                col_ptr[x.getIndex()]++;
+            nnz += x.getRowLength(i);
+        if (nnz > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("too many non-zero values to transpose: " + nnz);
+
+        // the histograms must not need more memory than the transposed matrix
+        int num_chunks = (int)Math.max(1, Math.min(Parallel.numChunks(nr_thread, l), nnz / (n + 1)));
+        int[][] col_pos = new int[num_chunks][n + 1];
+        Parallel.forChunks(num_chunks, l, (t, from, to) -> {
+            int[] count = col_pos[t];
+            int[] indices = null;
+            for (int i = from; i < to; i++) {
+                int length = x.getRowLength(i);
+                indices = x.getIndices(i, indices);
+                for (int k = 0; k < length; k++) {
+                    count[indices[k]]++;
+                }
             }
-        }
-
-        for (int i = 0; i < n; i++) {
-            prob_col.x[i] = new Feature[col_ptr[i + 1]];
-            col_ptr[i] = 0; // reuse the array to count the nr of elements
-        }
+        });
 
-        for (int i = 0; i < l; i++) {
-            for (int j = 0; j < prob.x[i].length; j++) {
-                Feature x = prob.x[i][j];
-                int index = x.getIndex() - 1;
-                prob_col.x[index][col_ptr[index]] = new FeatureNode(i + 1, x.getValue());
-                col_ptr[index]++;
+        int[] col_ptr = new int[n + 1];
+        for (int j = 1; j <= n; j++) {
+            int count = 0;
+            for (int t = 0; t < num_chunks; t++)
+                count += col_pos[t][j];
+            col_ptr[j] = col_ptr[j - 1] + count;
+        }
+
+        // col_pos[t][j] = the position of the first entry of chunk t in column j-1
+        Parallel.forRange(num_chunks, n, (from, to) -> {
+            for (int j = from + 1; j <= to; j++) {
+                int pos = col_ptr[j - 1];
+                for (int t = 0; t < num_chunks; t++) {
+                    int count = col_pos[t][j];
+                    col_pos[t][j] = pos;
+                    pos += count;
+                }
             }
-        }
+        });
+
+        int[] row_index = new int[(int)nnz];
+        double[] values = new double[(int)nnz];
+        Parallel.forChunks(num_chunks, l, (t, from, to) -> {
+            int[] pos = col_pos[t];
+            int[] indices = null;
+            for (int i = from; i < to; i++) {
+                int length = x.getRowLength(i);
+                indices = x.getIndices(i, indices);
+                for (int k = 0; k < length; k++) {
+                    int p = pos[indices[k]]++;
+                    row_index[p] = i + 1;
+                    values[p] = x.getValue(i, k);
+                }
+            }
+        });
 
-        return prob_col;
+        return new CsrMatrix(col_ptr, row_index, values);
     }
 
     static void swap(double[] array, int idxA, int idxB) {
@@ -2046,6 +2389,15 @@ public class Linear {
      * @throws IllegalArgumentException if the feature nodes of prob are not sorted in ascending order
      */
     public static Model train(Problem prob, Parameter param) {
+        if (param != null && Parallel.isOutside(param.pool))
+            return Parallel.invoke(param.pool, () -> train(prob, param));
+        return train(prob, param, new SolverWorkspace());
+    }
+
+    /**
+     * @param workspace the working arrays of the solvers, which may be reused by subsequent trainings
+     */
+    private static Model train(Problem prob, Parameter param, SolverWorkspace workspace) {
         if (prob == null) {
             throw new IllegalArgumentException("problem must not be null");
         }
@@ -2067,13 +2419,21 @@ public class Linear {
         if (prob.l == 0)
             throw new IllegalArgumentException("problem has zero instances");
 
-        for (Feature[] nodes : prob.x) {
+        FeatureMatrix prob_x = prob.rows();
+        if (prob_x.getNumRows() < prob.l)
+            throw new IllegalArgumentException("problem has less feature vectors than instances: " + prob_x.getNumRows() + " < " + prob.l);
+
+        int[] indices = null;
+        for (int i = 0; i < prob.l; i++) {
             int indexBefore = 0;
-            for (Feature n : nodes) {
-                if (n.getIndex() <= indexBefore) {
+            int length = prob_x.getRowLength(i);
+            indices = prob_x.getIndices(i, indices);
+            for (int k = 0; k < length; k++) {
+                int index = indices[k];
+                if (index <= indexBefore) {
                     throw new IllegalArgumentException("feature nodes must be sorted by index in ascending order");
                 }
-                indexBefore = n.getIndex();
+                indexBefore = index;
             }
         }
 
@@ -2126,7 +2486,7 @@ public class Linear {
 
             checkProblemSize(n, model.nr_class);
 
-            train_one(prob, param, model.w, 0, 0);
+            train_one(prob, null, param, model.w, 0, 0, workspace, 0);
         } else if (param.solverType.isOneClass()) {
             model.w = new double[w_size];
             model.nr_class = 2;
@@ -2167,19 +2527,12 @@ public class Linear {
             }
 
             // constructing the subproblem
-            Feature[][] x = new Feature[l][];
-            for (int i = 0; i < l; i++)
-                x[i] = prob.x[perm[i]];
-
             Problem sub_prob = new Problem();
             sub_prob.l = l;
             sub_prob.n = n;
-            sub_prob.x = new Feature[sub_prob.l][];
+            sub_prob.matrix = prob_x.view(perm);
             sub_prob.y = new double[sub_prob.l];
 
-            for (int k = 0; k < sub_prob.l; k++)
-                sub_prob.x[k] = x[k];
-
             // multi-class svm by Crammer and Singer
             if (param.solverType == MCSVM_CS) {
                 model.w = new double[n * nr_class];
@@ -2209,33 +2562,39 @@ public class Linear {
                         for (int i = 0; i < w_size; i++)
                             model.w[i] = 0;
 
-                    train_one(sub_prob, param, model.w, weighted_C[0], weighted_C[1]);
+                    train_one(sub_prob, null, param, model.w, weighted_C[0], weighted_C[1], workspace, 0);
                 } else {
                     model.w = new double[w_size * nr_class];
-                    double[] w = new double[w_size];
-                    for (int i = 0; i < nr_class; i++) {
-                        int si = start[i];
-                        int ei = si + count[i];
-
-                        int k = 0;
-                        for (; k < si; k++)
-                            sub_prob.y[k] = -1;
-                        for (; k < ei; k++)
-                            sub_prob.y[k] = +1;
-                        for (; k < sub_prob.l; k++)
-                            sub_prob.y[k] = -1;
-
-                        if (param.init_sol != null)
-                            for (int j = 0; j < w_size; j++)
-                                w[j] = param.init_sol[j * nr_class + i];
-                        else
-                            for (int j = 0; j < w_size; j++)
-                                w[j] = 0;
 
-                        train_one(sub_prob, param, w, weighted_C[i], param.C);
+                    // the feature vectors are the same for all classes, only the labels and costs differ
+                    CsrMatrix x_col = null;
+                    if (param.solverType == L1R_LR || param.solverType == L1R_L2LOSS_SVC)
+                        x_col = transpose(sub_prob, param.nr_thread);
 
-                        for (int j = 0; j < n; j++)
-                            model.w[j * nr_class + i] = w[j];
+                    // the seeds are drawn in class order, so the random numbers of each class do not depend on the number of threads
+                    long[] seeds = new long[nr_class];
+                    for (int i = 0; i < nr_class; i++)
+                        seeds[i] = param.random.nextLong();
+
+                    if (param.nr_thread > 1) {
+                        train_one_vs_rest_parallel(sub_prob, x_col, param, seeds, model.w, nr_class, start, count, weighted_C, workspace);
+                    } else {
+                        double[] w = new double[w_size];
+                        for (int i = 0; i < nr_class; i++) {
+                            setOneVsRestLabels(sub_prob.y, start[i], count[i]);
+
+                            if (param.init_sol != null)
+                                for (int j = 0; j < w_size; j++)
+                                    w[j] = param.init_sol[j * nr_class + i];
+                            else
+                                for (int j = 0; j < w_size; j++)
+                                    w[j] = 0;
+
+                            train_one(sub_prob, x_col, classParameter(param, seeds[i]), w, weighted_C[i], param.C, workspace, i);
+
+                            for (int j = 0; j < n; j++)
+                                model.w[j * nr_class + i] = w[j];
+                        }
                     }
                 }
             }
@@ -2243,6 +2602,77 @@ public class Linear {
         return model;
     }
 
+    private static void setOneVsRestLabels(double[] y, int si, int count) {
+        int ei = si + count;
+
+        int k = 0;
+        for (; k < si; k++)
+            y[k] = -1;
+        for (; k < ei; k++)
+            y[k] = +1;
+        for (; k < y.length; k++)
+            y[k] = -1;
+    }
+
+    /**
+     * The solver of a class runs with a single thread, since the classes are trained concurrently instead:
+     * a solver that splits its passes into chunks rounds its sums depending on the number of threads,
+     * so the model would differ from a training with one thread.
+     *
+     * @return the parameter of a one-vs-rest class, a copy of param with its own random generator
+     */
+    private static Parameter classParameter(Parameter param, long seed) {
+        Parameter class_param = param.clone();
+        class_param.random = new Random(seed);
+        class_param.nr_thread = 1;
+        return class_param;
+    }
+
+    /**
+     * trains the one-vs-rest subproblems concurrently; each class has its own labels and weights
+     */
+    private static void train_one_vs_rest_parallel(Problem sub_prob, CsrMatrix x_col, Parameter param, long[] seeds, double[] model_w, int nr_class,
+        int[] start, int[] count, double[] weighted_C, SolverWorkspace parent_workspace) {
+        int w_size = sub_prob.n;
+
+        SolverWorkspace.Pool workspaces = new SolverWorkspace.Pool(parent_workspace);
+        Parallel.forEach(param.nr_thread, nr_class, i -> {
+            Problem class_prob = new Problem();
+            class_prob.l = sub_prob.l;
+            class_prob.n = sub_prob.n;
+            class_prob.matrix = sub_prob.matrix;
+            class_prob.y = new double[sub_prob.l];
+            setOneVsRestLabels(class_prob.y, start[i], count[i]);
+
+            Parameter class_param = classParameter(param, seeds[i]);
+
+            double[] w = new double[w_size];
+            if (param.init_sol != null)
+                for (int j = 0; j < w_size; j++)
+                    w[j] = param.init_sol[j * nr_class + i];
+
+            SolverWorkspace workspace = workspaces.take();
+            train_one(class_prob, x_col, class_param, w, weighted_C[i], param.C, workspace, i);
+            workspaces.release(workspace);
+
+            // each class writes a disjoint set of elements
+            for (int j = 0; j < w_size; j++)
+                model_w[j * nr_class + i] = w[j];
+        });
+    }
+
+    /**
+     * runs the Newton method, reusing the norm of the gradient at w=0 of an earlier training of the class in the workspace if possible
+     */
+    private static void newton(Newton newton_obj, double[] w, Parameter param, double Cp, double Cn, SolverWorkspace workspace, int cls) {
+        double gnorm0 = workspace.getZeroGradientNorm(param, cls, Cp, Cn);
+        if (Double.isNaN(gnorm0)) {
+            gnorm0 = newton_obj.gradient_norm_at_zero();
+            workspace.setZeroGradientNorm(param, cls, Cp, Cn, gnorm0);
+        }
+        newton_obj.newton(w, gnorm0);
+    }
+
     /**
      * verify the size and throw an exception early if the problem is too large
      */
@@ -2252,7 +2682,12 @@ public class Linear {
         }
     }
 
-    private static void train_one(Problem prob, Parameter param, double[] w, double Cp, double Cn) {
+    /**
+     * @param x_col the transposed feature vectors of prob for the L1-regularized solvers, or null to transpose them here
+     * @param cls the index of the one-vs-rest class, or 0
+     */
+    private static void train_one(Problem prob, CsrMatrix x_col, Parameter param, double[] w, double Cp, double Cn, SolverWorkspace workspace,
+        int cls) {
         SolverType solver_type = param.solverType;
         int dual_solver_max_iter = 300;
         int iter;
@@ -2261,7 +2696,7 @@ public class Linear {
         boolean is_regression = solver_type.isSupportVectorRegression();
 
         // Some solvers use Cp,Cn but not C array; extensions possible but no plan for now
-        double[] C = new double[prob.l];
+        double[] C = workspace.get(DoubleArray.COST, prob.l);
         double primal_solver_tol = param.eps;
         if (is_regression) {
             for (int i = 0; i < prob.l; i++)
@@ -2281,80 +2716,82 @@ public class Linear {
 
         switch (solver_type) {
             case L2R_LR: {
-                L2R_LrFunction fun_obj = new L2R_LrFunction(prob, param, C);
-                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                newton_obj.newton(w);
+                L2R_LrFunction fun_obj = new L2R_LrFunction(prob, param, C, workspace);
+                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 break;
             }
             case L2R_L2LOSS_SVC: {
-                L2R_L2_SvcFunction fun_obj = new L2R_L2_SvcFunction(prob, param, C);
-                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                newton_obj.newton(w);
+                L2R_L2_SvcFunction fun_obj = new L2R_L2_SvcFunction(prob, param, C, workspace);
+                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 break;
             }
             case L2R_L2LOSS_SVC_DUAL: {
-                iter = solve_l2r_l1l2_svc(prob, param, w, Cp, Cn, dual_solver_max_iter);
+                iter = solve_l2r_l1l2_svc(prob, param, w, Cp, Cn, dual_solver_max_iter, workspace);
                 if (iter >= dual_solver_max_iter) {
                     info("%nWARNING: reaching max number of iterations%nSwitching to use -s 2%n%n");
                     // primal_solver_tol obtained from eps for dual may be too loose
                     primal_solver_tol *= 0.1;
-                    L2R_L2_SvcFunction fun_obj = new L2R_L2_SvcFunction(prob, param, C);
-                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                    newton_obj.newton(w);
+                    L2R_L2_SvcFunction fun_obj = new L2R_L2_SvcFunction(prob, param, C, workspace);
+                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                    newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 }
                 break;
             }
             case L2R_L1LOSS_SVC_DUAL: {
-                iter = solve_l2r_l1l2_svc(prob, param, w, Cp, Cn, dual_solver_max_iter);
+                iter = solve_l2r_l1l2_svc(prob, param, w, Cp, Cn, dual_solver_max_iter, workspace);
                 if (iter >= dual_solver_max_iter)
                     info("%nWARNING: reaching max number of iterations%nUsing -s 2 may be faster (also see FAQ)%n%n");
                 break;
             }
             case L1R_L2LOSS_SVC: {
-                Problem prob_col = transpose(prob);
-                solve_l1r_l2_svc(prob_col, param, w, Cp, Cn, primal_solver_tol, param.max_iters);
+                if (x_col == null)
+                    x_col = transpose(prob, param.nr_thread);
+                solve_l1r_l2_svc(prob, x_col, param, w, Cp, Cn, primal_solver_tol, param.max_iters);
                 break;
             }
             case L1R_LR: {
-                Problem prob_col = transpose(prob);
-                solve_l1r_lr(prob_col, param, w, Cp, Cn, primal_solver_tol, param.max_iters);
+                if (x_col == null)
+                    x_col = transpose(prob, param.nr_thread);
+                solve_l1r_lr(prob, x_col, param, w, Cp, Cn, primal_solver_tol, param.max_iters);
                 break;
             }
             case L2R_LR_DUAL: {
-                iter = solve_l2r_lr_dual(prob, param, w, Cp, Cn, dual_solver_max_iter);
+                iter = solve_l2r_lr_dual(prob, param, w, Cp, Cn, dual_solver_max_iter, workspace);
                 if (iter >= dual_solver_max_iter) {
                     info("%nWARNING: reaching max number of iterations%nSwitching to use -s 0%n%n");
                     // primal_solver_tol obtained from eps for dual may be too loose
                     primal_solver_tol *= 0.1;
-                    L2R_LrFunction fun_obj = new L2R_LrFunction(prob, param, C);
-                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                    newton_obj.newton(w);
+                    L2R_LrFunction fun_obj = new L2R_LrFunction(prob, param, C, workspace);
+                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                    newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 }
                 break;
             }
             case L2R_L2LOSS_SVR: {
-                L2R_L2_SvrFunction fun_obj = new L2R_L2_SvrFunction(prob, param, C);
-                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                newton_obj.newton(w);
+                L2R_L2_SvrFunction fun_obj = new L2R_L2_SvrFunction(prob, param, C, workspace);
+                Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 break;
 
             }
             case L2R_L1LOSS_SVR_DUAL: {
-                iter = solve_l2r_l1l2_svr(prob, param, w, dual_solver_max_iter);
+                iter = solve_l2r_l1l2_svr(prob, param, w, dual_solver_max_iter, workspace);
                 if (iter >= dual_solver_max_iter)
                     info("%nWARNING: reaching max number of iterations%nUsing -s 11 may be faster (also see FAQ)%n%n");
 
                 break;
             }
             case L2R_L2LOSS_SVR_DUAL: {
-                iter = solve_l2r_l1l2_svr(prob, param, w, dual_solver_max_iter);
+                iter = solve_l2r_l1l2_svr(prob, param, w, dual_solver_max_iter, workspace);
                 if (iter >= dual_solver_max_iter) {
                     info("%nWARNING: reaching max number of iterations%nSwitching to use -s 11%n%n");
                     // primal_solver_tol obtained from eps for dual may be too loose
                     primal_solver_tol *= 0.001;
-                    L2R_L2_SvrFunction fun_obj = new L2R_L2_SvrFunction(prob, param, C);
-                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters);
-                    newton_obj.newton(w);
+                    L2R_L2_SvrFunction fun_obj = new L2R_L2_SvrFunction(prob, param, C, workspace);
+                    Newton newton_obj = new Newton(fun_obj, primal_solver_tol, param.max_iters, param.nr_thread, workspace);
+                    newton(newton_obj, w, param, Cp, Cn, workspace, cls);
                 }
                 break;
             }
@@ -2368,12 +2805,9 @@ public class Linear {
         int i;
         double xTx, max_xTx;
         max_xTx = 0;
+        FeatureMatrix x = prob.rows();
         for (i = 0; i < prob.l; i++) {
-            xTx = 0;
-            for (Feature xi : prob.x[i]) {
-                double val = xi.getValue();
-                xTx += val * val;
-            }
+            xTx = x.nrm2_sq(i);
             if (xTx > max_xTx)
                 max_xTx = xTx;
         }
@@ -2413,6 +2847,8 @@ public class Linear {
 
     public static ParameterCSearchResult find_parameter_C(Problem prob, Parameter param_tmp, double start_C, double max_C, int[] fold_start, int[] perm,
         Problem[] subprob, int nr_fold) {
+        if (Parallel.isOutside(param_tmp.pool))
+            return Parallel.invoke(param_tmp.pool, () -> find_parameter_C(prob, param_tmp, start_C, max_C, fold_start, perm, subprob, nr_fold));
         double best_C;
         double best_score = Double.NaN;
         // variables for CV
@@ -2426,6 +2862,7 @@ public class Linear {
             prev_w[i] = null;
         int num_unchanged_w = 0;
         PrintStream default_print_string = DEBUG_OUTPUT;
+        FeatureMatrix x = prob.rows();
 
         if (param_tmp.getSolverType() == L2R_LR || param_tmp.getSolverType() == L2R_L2LOSS_SVC)
             best_score = 0.0;
@@ -2433,47 +2870,64 @@ public class Linear {
             best_score = Double.POSITIVE_INFINITY;
         best_C = start_C;
 
+        // with multiple threads the folds of each C are trained concurrently, each with its own copy of the parameter;
+        // the seeds are drawn in fold order, so the random numbers of each fold do not depend on the number of threads
+        int block_size = param_tmp.search_block_size;
+        Parameter[] fold_param = block_size == 1 && param_tmp.nr_thread > 1 ? new Parameter[nr_fold] : null;
+        if (fold_param != null) {
+            for (i = 0; i < nr_fold; i++) {
+                fold_param[i] = param_tmp.clone();
+                fold_param[i].random = new Random(param_tmp.random.nextLong());
+            }
+        }
+
+        // the solvers of a fold reuse their working arrays and the gradient norms at w=0 for all values of C
+        SolverWorkspace[] fold_workspace = new SolverWorkspace[nr_fold];
+        for (i = 0; i < nr_fold; i++)
+            fold_workspace[i] = new SolverWorkspace();
+
+        // with a search block size > 1, the submodels of the next block_size values of C are trained in advance
+        Model[][] block_model = null;
+        double[][] block_target = null;
+        int block_pos = 0;
+
         param_tmp.C = start_C;
         while (param_tmp.C <= max_C) {
             //Output disabled for running CV at a particular C
             disableDebugOutput();
 
-            for (i = 0; i < nr_fold; i++) {
-                int j;
-                int begin = fold_start[i];
-                int end = fold_start[i + 1];
-
-                param_tmp.init_sol = prev_w[i];
-                Model submodel = train(subprob[i], param_tmp);
-
-                int total_w_size;
-                if (submodel.nr_class == 2)
-                    total_w_size = subprob[i].n;
-                else
-                    total_w_size = subprob[i].n * submodel.nr_class;
-
-                if (prev_w[i] == null) {
-                    prev_w[i] = new double[total_w_size];
-                    for (j = 0; j < total_w_size; j++)
-                        prev_w[i][j] = submodel.w[j];
-                } else if (num_unchanged_w >= 0) {
-                    double norm_w_diff = 0;
-                    for (j = 0; j < total_w_size; j++) {
-                        norm_w_diff += (submodel.w[j] - prev_w[i][j]) * (submodel.w[j] - prev_w[i][j]);
-                        prev_w[i][j] = submodel.w[j];
-                    }
-                    norm_w_diff = Math.sqrt(norm_w_diff);
-
-                    if (norm_w_diff > 1e-15)
-                        num_unchanged_w = -1;
-                } else {
-                    for (j = 0; j < total_w_size; j++)
-                        prev_w[i][j] = submodel.w[j];
+            // the warm start chains of the folds are independent of each other
+            boolean check_w_change = num_unchanged_w >= 0;
+            boolean[] w_changed = new boolean[nr_fold];
+            if (block_size > 1) {
+                if (block_model == null || block_pos == block_model.length) {
+                    int num_C = 1;
+                    while (num_C < block_size && param_tmp.C * Math.pow(ratio, num_C) <= max_C)
+                        num_C++;
+                    block_model = new Model[num_C][nr_fold];
+                    block_target = new double[num_C][prob.l];
+                    block_pos = 0;
+                    train_C_block(x, param_tmp, ratio, subprob, fold_workspace, prev_w, perm, fold_start, block_model, block_target);
                 }
-
-                for (j = begin; j < end; j++)
-                    target[perm[j]] = predict(submodel, prob.x[perm[j]]);
+                for (i = 0; i < nr_fold; i++)
+                    w_changed[i] = update_prev_w(prev_w, i, block_model[block_pos][i], subprob[i].n, check_w_change);
+                System.arraycopy(block_target[block_pos], 0, target, 0, prob.l);
+                block_pos++;
+            } else if (fold_param != null) {
+                double C = param_tmp.C;
+                Parallel.forEach(param_tmp.nr_thread, nr_fold, fold -> {
+                    fold_param[fold].C = C;
+                    w_changed[fold] = find_parameter_C_fold(x, fold_param[fold], subprob[fold], fold_workspace[fold], prev_w, fold, check_w_change,
+                        perm, fold_start[fold], fold_start[fold + 1], target);
+                });
+            } else {
+                for (i = 0; i < nr_fold; i++)
+                    w_changed[i] = find_parameter_C_fold(x, param_tmp, subprob[i], fold_workspace[i], prev_w, i, check_w_change, perm, fold_start[i],
+                        fold_start[i + 1], target);
             }
+            for (i = 0; i < nr_fold; i++)
+                if (w_changed[i])
+                    num_unchanged_w = -1;
             setDebugOutput(default_print_string);
 
             if (param_tmp.getSolverType() == L2R_LR || param_tmp.getSolverType() == L2R_L2LOSS_SVC) {
@@ -2515,6 +2969,101 @@ public class Linear {
         return new ParameterCSearchResult(best_C, best_score);
     }
 
+    /**
+     * trains the given fold warm-started from prev_w[fold], predicts the left-out instances and updates prev_w[fold]
+     *
+     * @return true if check_w_change is set and the solution differs from the previous one
+     */
+    private static boolean find_parameter_C_fold(FeatureMatrix x, Parameter param, Problem subprob, SolverWorkspace workspace, double[][] prev_w, int fold,
+        boolean check_w_change, int[] perm, int begin, int end, double[] target) {
+        param.init_sol = prev_w[fold];
+        Model submodel = train(subprob, param, workspace);
+        boolean w_changed = update_prev_w(prev_w, fold, submodel, subprob.n, check_w_change);
+
+        for (int j = begin; j < end; j++)
+            target[perm[j]] = predict(submodel, x, perm[j]);
+        return w_changed;
+    }
+
+    /**
+     * copies the solution of the submodel to prev_w[fold]
+     *
+     * @return true if check_w_change is set and the solution differs from the previous one
+     */
+    private static boolean update_prev_w(double[][] prev_w, int fold, Model submodel, int n, boolean check_w_change) {
+        int j;
+        boolean w_changed = false;
+        int total_w_size;
+        if (submodel.nr_class == 2)
+            total_w_size = n;
+        else
+            total_w_size = n * submodel.nr_class;
+
+        if (prev_w[fold] == null) {
+            prev_w[fold] = new double[total_w_size];
+            for (j = 0; j < total_w_size; j++)
+                prev_w[fold][j] = submodel.w[j];
+        } else if (check_w_change) {
+            double norm_w_diff = 0;
+            for (j = 0; j < total_w_size; j++) {
+                norm_w_diff += (submodel.w[j] - prev_w[fold][j]) * (submodel.w[j] - prev_w[fold][j]);
+                prev_w[fold][j] = submodel.w[j];
+            }
+            norm_w_diff = Math.sqrt(norm_w_diff);
+
+            if (norm_w_diff > 1e-15)
+                w_changed = true;
+        } else {
+            for (j = 0; j < total_w_size; j++)
+                prev_w[fold][j] = submodel.w[j];
+        }
+        return w_changed;
+    }
+
+    /**
+     * <p>Speculatively trains the folds for the block_model.length values C, C*ratio, C*ratio^2, ... (C = param_tmp.C)
+     * and stores the submodels and the cross validation predictions of each C in block_model and block_target.</p>
+     *
+     * <p>The folds of the smallest C are warm-started from prev_w and trained first. Then the folds of all other values of
+     * the block are trained concurrently, warm-started from the solutions of the smallest C.
+     * Each submodel is trained with its own random generator, which is seeded in order from param_tmp,
+     * so the random numbers of each submodel do not depend on the number of threads.</p>
+     */
+    private static void train_C_block(FeatureMatrix x, Parameter param_tmp, double ratio, Problem[] subprob, SolverWorkspace[] fold_workspace,
+        double[][] prev_w, int[] perm, int[] fold_start, Model[][] block_model, double[][] block_target) {
+        int num_C = block_model.length;
+        int nr_fold = subprob.length;
+        Parameter[] task_param = new Parameter[num_C * nr_fold];
+        for (int k = 0; k < num_C; k++) {
+            for (int fold = 0; fold < nr_fold; fold++) {
+                Parameter param = param_tmp.clone();
+                param.C = param_tmp.C * Math.pow(ratio, k);
+                param.random = new Random(param_tmp.random.nextLong());
+                task_param[k * nr_fold + fold] = param;
+            }
+        }
+
+        // the folds of the smallest C use the workspaces of the folds, the concurrent tasks of each fold take theirs from a pool
+        SolverWorkspace.Pool[] workspaces = new SolverWorkspace.Pool[nr_fold];
+        for (int fold = 0; fold < nr_fold; fold++)
+            workspaces[fold] = new SolverWorkspace.Pool(fold_workspace[fold]);
+        IntConsumer trainTask = task -> {
+            int k = task / nr_fold;
+            int fold = task % nr_fold;
+            Parameter param = task_param[task];
+            param.init_sol = k == 0 ? prev_w[fold] : block_model[0][fold].w;
+            SolverWorkspace workspace = k == 0 ? fold_workspace[fold] : workspaces[fold].take();
+            Model submodel = train(subprob[fold], param, workspace);
+            if (k > 0)
+                workspaces[fold].release(workspace);
+            block_model[k][fold] = submodel;
+            for (int j = fold_start[fold]; j < fold_start[fold + 1]; j++)
+                block_target[k][perm[j]] = predict(submodel, x, perm[j]);
+        };
+        Parallel.forEach(param_tmp.nr_thread, nr_fold, trainTask);
+        Parallel.forEach(param_tmp.nr_thread, (num_C - 1) * nr_fold, task -> trainTask.accept(nr_fold + task));
+    }
+
     public static void disableDebugOutput() {
         setDebugOutput(null);
     }
@@ -0,0 +1,166 @@
+package de.bwaldvogel.liblinear;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * <p>Compressed sparse row (CSR) storage of the feature vectors in a memory-mapped file.</p>
+ *
+ * <p>The row offsets, feature indices and values stay off-heap and are read by the solvers
+ * directly from the mapped file, so problems larger than the Java heap can be trained
+ * without {@link FeatureNode} objects. Use {@link Problem#mapBinaryFile(java.nio.file.Path)}
+ * to obtain a problem that is backed by this class.</p>
+ *
+ * <p>Since a single {@link MappedByteBuffer} is limited to 2 GB, each array is mapped in chunks.</p>
+ */
+public final class MappedCsrMatrix extends FeatureMatrix {
+
+    /** 2^27 elements per chunk, i.e. 1 GB for the offsets and values */
+    static final int DEFAULT_CHUNK_SHIFT = 27;
+
+    private final int            numRows;
+    private final long           nnz;
+    private final int            chunkShift;
+    private final int            chunkMask;
+    private final LongBuffer[]   rowPtr;
+    private final IntBuffer[]    indices;
+    private final DoubleBuffer[] values;
+
+    MappedCsrMatrix(FileChannel channel, int numRows, long nnz, long rowPtrPosition, long indicesPosition, long valuesPosition,
+        int chunkShift) throws IOException {
+        this.numRows = numRows;
+        this.nnz = nnz;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+
+        MappedByteBuffer[] rowPtrChunks = map(channel, rowPtrPosition, numRows + 1L, Long.BYTES);
+        rowPtr = new LongBuffer[rowPtrChunks.length];
+        for (int c = 0; c < rowPtrChunks.length; c++)
+            rowPtr[c] = rowPtrChunks[c].asLongBuffer();
+
+        MappedByteBuffer[] indexChunks = map(channel, indicesPosition, nnz, Integer.BYTES);
+        indices = new IntBuffer[indexChunks.length];
+        for (int c = 0; c < indexChunks.length; c++)
+            indices[c] = indexChunks[c].asIntBuffer();
+
+        MappedByteBuffer[] valueChunks = map(channel, valuesPosition, nnz, Double.BYTES);
+        values = new DoubleBuffer[valueChunks.length];
+        for (int c = 0; c < valueChunks.length; c++)
+            values[c] = valueChunks[c].asDoubleBuffer();
+    }
+
+    private MappedByteBuffer[] map(FileChannel channel, long position, long count, int elementSize) throws IOException {
+        int numChunks = (int)((count + chunkMask) >>> chunkShift);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[numChunks];
+        for (int c = 0; c < numChunks; c++) {
+            long first = (long)c << chunkShift;
+            long length = Math.min(1L << chunkShift, count - first);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, position + first * elementSize, length * elementSize);
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the total number of stored (non-zero) features
+     */
+    public long getNumNonZeros() {
+        return nnz;
+    }
+
+    private long rowStart(int row) {
+        return rowPtr[row >>> chunkShift].get(row & chunkMask);
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return (int)(rowStart(row + 1) - rowStart(row));
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        long pos = rowStart(row) + k;
+        return indices[(int)(pos >>> chunkShift)].get((int)(pos & chunkMask));
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        long pos = rowStart(row) + k;
+        return values[(int)(pos >>> chunkShift)].get((int)(pos & chunkMask));
+    }
+
+    // the kernels process a row chunk by chunk, since a row may cross a chunk boundary
+
+    @Override
+    double nrm2_sq(int row) {
+        double ret = 0;
+        long from = rowStart(row);
+        long to = rowStart(row + 1);
+        while (from < to) {
+            int chunk = (int)(from >>> chunkShift);
+            int start = (int)(from & chunkMask);
+            int end = (int)Math.min(to - ((long)chunk << chunkShift), 1L << chunkShift);
+            DoubleBuffer val = values[chunk];
+            for (int k = start; k < end; k++) {
+                double value = val.get(k);
+                ret += value * value;
+            }
+            from += end - start;
+        }
+        return (ret);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        double ret = 0;
+        long from = rowStart(row);
+        long to = rowStart(row + 1);
+        while (from < to) {
+            int chunk = (int)(from >>> chunkShift);
+            int start = (int)(from & chunkMask);
+            int end = (int)Math.min(to - ((long)chunk << chunkShift), 1L << chunkShift);
+            IntBuffer idx = indices[chunk];
+            DoubleBuffer val = values[chunk];
+            for (int k = start; k < end; k++) {
+                ret += s[idx.get(k) - 1] * val.get(k);
+            }
+            from += end - start;
+        }
+        return (ret);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        long from = rowStart(row);
+        long to = rowStart(row + 1);
+        while (from < to) {
+            int chunk = (int)(from >>> chunkShift);
+            int start = (int)(from & chunkMask);
+            int end = (int)Math.min(to - ((long)chunk << chunkShift), 1L << chunkShift);
+            IntBuffer idx = indices[chunk];
+            DoubleBuffer val = values[chunk];
+            for (int k = start; k < end; k++) {
+                y[idx.get(k) - 1] += a * val.get(k);
+            }
+            from += end - start;
+        }
+    }
+
+    /**
+     * does not copy the selected rows, since the matrix is usually larger than the heap
+     */
+    @Override
+    FeatureMatrix select(int[] rows) {
+        return new RowSelection(this, rows);
+    }
+
+}
@@ -2,26 +2,60 @@ package de.bwaldvogel.liblinear;
 
 import static de.bwaldvogel.liblinear.Linear.*;
 
+import de.bwaldvogel.liblinear.SolverWorkspace.DoubleArray;
 
+
+/**
+ * <p>The dense vector operations of the conjugate gradient iterations are split into blocks of {@link #BLOCK_SIZE}
+ * variables, which are processed by up to nr_thread threads. The sums of the blocks are added in block order, so the
+ * results do not depend on the number of threads. Problems with at most {@link #BLOCK_SIZE} variables are processed
+ * sequentially like before.</p>
+ */
 class Newton {
 
+    /** the number of variables of a block; fixed, so that the blocked sums do not depend on the number of threads */
+    static final int BLOCK_SIZE = 1 << 15;
+
     private final Function fun_obj;
     private final double   eps;
     private final int      max_iter;
     private final double   eps_cg;
+    private final int      nr_thread;
+    private final SolverWorkspace workspace;
 
-    Newton(Function fun_obj, double eps, int max_iter) {
-        this(fun_obj, eps, max_iter, 0.5);
+    Newton(Function fun_obj, double eps, int max_iter, int nr_thread, SolverWorkspace workspace) {
+        this(fun_obj, eps, max_iter, 0.5, nr_thread, workspace);
     }
 
-    Newton(Function fun_obj, double eps, int max_iter, double eps_cg) {
+    Newton(Function fun_obj, double eps, int max_iter, double eps_cg, int nr_thread, SolverWorkspace workspace) {
         this.fun_obj = fun_obj;
         this.eps = eps;
         this.max_iter = max_iter;
         this.eps_cg = eps_cg;
+        this.nr_thread = nr_thread;
+        this.workspace = workspace;
+    }
+
+    /**
+     * @return the norm of the gradient at w=0, which is used in the stopping condition
+     */
+    double gradient_norm_at_zero() {
+        int n = fun_obj.get_nr_variable();
+        double[] g = workspace.get(DoubleArray.NEWTON_G, n);
+        double[] w0 = workspace.get(DoubleArray.NEWTON_W0, n);
+        fun_obj.fun(w0);
+        fun_obj.grad(w0, g);
+        return Blas.dnrm2_(n, g, new MutableInt(1));
     }
 
     void newton(double[] w) {
+        newton(w, gradient_norm_at_zero());
+    }
+
+    /**
+     * @param gnorm0 the norm of the gradient at w=0, e.g. of an earlier run with proportional costs
+     */
+    void newton(double[] w, double gnorm0) {
         int n = fun_obj.get_nr_variable();
         int i, cg_iter;
         double step_size;
@@ -30,21 +64,12 @@ class Newton {
         boolean search = true;
         int iter = 1;
         MutableInt inc = new MutableInt(1);
-        double[] s = new double[n];
-        double[] r = new double[n];
-        double[] g = new double[n];
+        double[] s = workspace.get(DoubleArray.NEWTON_S, n);
+        double[] r = workspace.get(DoubleArray.NEWTON_R, n);
+        double[] g = workspace.get(DoubleArray.NEWTON_G, n);
 
         final double alpha_pcg = 0.01;
-        double[] M = new double[n];
-
-        // calculate gradient norm at w=0 for stopping condition.
-        double[] w0 = new double[n];
-        for (i = 0; i < n; i++)
-            w0[i] = 0;
-        fun_obj.fun(w0);
-        fun_obj.grad(w0, g);
-
-        double gnorm0 = Blas.dnrm2_(n, g, inc);
+        double[] M = workspace.get(DoubleArray.NEWTON_M, n);
 
         f = fun_obj.fun(w);
         fun_obj.grad(w, g);
@@ -56,8 +81,7 @@ class Newton {
 
         while (iter <= max_iter && search) {
             fun_obj.get_diag_preconditioner(M);
-            for (i = 0; i < n; i++)
-                M[i] = (1 - alpha_pcg) + alpha_pcg * M[i];
+            Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> DenseKernels.INSTANCE.affine(from, to, 1 - alpha_pcg, alpha_pcg, M));
             cg_iter = pcg(g, M, s, r);
 
             fold = f;
@@ -95,23 +119,23 @@ class Newton {
     }
 
     private int pcg(double[] g, double[] M, double[] s, double[] r) {
-        int i, inc = 1;
         int n = fun_obj.get_nr_variable();
-        double one = 1;
-        double[] d = new double[n];
-        double[] Hd = new double[n];
+        double[] d = workspace.get(DoubleArray.PCG_D, n);
+        double[] Hd = workspace.get(DoubleArray.PCG_HD, n);
         double zTr, znewTrnew, alpha, beta, cgtol, dHd;
-        double[] z = new double[n];
+        double[] z = workspace.get(DoubleArray.PCG_Z, n);
         double Q = 0, newQ, Qdiff;
 
-        for (i = 0; i < n; i++) {
-            s[i] = 0;
-            r[i] = -g[i];
-            z[i] = r[i] / M[i];
-            d[i] = z[i];
-        }
+        Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> {
+            for (int i = from; i < to; i++) {
+                s[i] = 0;
+                r[i] = -g[i];
+                z[i] = r[i] / M[i];
+                d[i] = z[i];
+            }
+        });
 
-        zTr = Blas.ddot_(n, z, inc, r, inc);
+        zTr = dot(n, z, r);
         double gMinv_norm = Math.sqrt(zTr);
         cgtol = Math.min(eps_cg, Math.sqrt(gMinv_norm));
         int cg_iter = 0;
@@ -121,18 +145,20 @@ class Newton {
             cg_iter++;
 
             fun_obj.Hv(d, Hd);
-            dHd = Blas.ddot_(n, d, inc, Hd, inc);
+            dHd = dot(n, d, Hd);
             // avoid 0/0 in getting alpha
             if (dHd <= 1.0e-16)
                 break;
 
             alpha = zTr / dHd;
-            Blas.daxpy_(n, alpha, d, inc, s, inc);
-            alpha = -alpha;
-            Blas.daxpy_(n, alpha, Hd, inc, r, inc);
+            double step = alpha;
+            Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> {
+                DenseKernels.INSTANCE.axpy(from, to, step, d, s);
+                DenseKernels.INSTANCE.axpy(from, to, -step, Hd, r);
+            });
 
             // Using quadratic approximation as CG stopping criterion
-            newQ = -0.5 * (Blas.ddot_(n, s, inc, r, inc) - Blas.ddot_(n, s, inc, g, inc));
+            newQ = -0.5 * (dot(n, s, r) - dot(n, s, g));
             Qdiff = newQ - Q;
             if (newQ <= 0 && Qdiff <= 0) {
                 if (cg_iter * Qdiff >= cgtol * newQ)
@@ -143,12 +169,14 @@ class Newton {
             }
             Q = newQ;
 
-            for (i = 0; i < n; i++)
-                z[i] = r[i] / M[i];
-            znewTrnew = Blas.ddot_(n, z, inc, r, inc);
+            Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> DenseKernels.INSTANCE.divide(from, to, r, M, z));
+            znewTrnew = dot(n, z, r);
             beta = znewTrnew / zTr;
-            Blas.dscal_(n, beta, d, inc);
-            Blas.daxpy_(n, one, z, inc, d, inc);
+            double scale = beta;
+            Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> {
+                DenseKernels.INSTANCE.scal(from, to, scale, d);
+                DenseKernels.INSTANCE.axpy(from, to, 1, z, d);
+            });
             zTr = znewTrnew;
         }
 
@@ -158,4 +186,20 @@ class Newton {
         return (cg_iter);
     }
 
+    /**
+     * @return the sum of x[i] * y[i]; the sums of the blocks are added in block order
+     */
+    private double dot(int n, double[] x, double[] y) {
+        int num_blocks = Parallel.numBlocks(n, BLOCK_SIZE);
+        if (num_blocks == 1)
+            return Blas.ddot_(n, x, 1, y, 1);
+
+        double[] block_sums = workspace.get(DoubleArray.PCG_BLOCK_SUMS, num_blocks);
+        Parallel.forBlocks(nr_thread, n, BLOCK_SIZE, (b, from, to) -> block_sums[b] = DenseKernels.INSTANCE.dot(from, to, x, y));
+        double sum = 0;
+        for (int b = 0; b < num_blocks; b++)
+            sum += block_sums[b];
+        return sum;
+    }
+
 }
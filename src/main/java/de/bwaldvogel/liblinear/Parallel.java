@@ -0,0 +1,195 @@
+package de.bwaldvogel.liblinear;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+
+/**
+ * <p>Runs independent tasks with up to {@link Parameter#getNumThreads()} threads of a {@link ForkJoinPool}: the pool of the
+ * calling thread, which is the pool of {@link Parameter#setForkJoinPool} during a training (see {@link #invoke}),
+ * or the common pool.</p>
+ *
+ * <p>The tasks are joined with {@link ForkJoinTask#invokeAll(java.util.Collection)}, so nested parallel
+ * loops (e.g. the kernels of a class that is trained in parallel) help instead of blocking a thread.
+ * Exceptions of the tasks are rethrown in the calling thread.</p>
+ */
+final class Parallel {
+
+    /** a range of elements is only split between threads if each thread gets at least this many elements */
+    static final int MIN_RANGE_PER_THREAD = 4096;
+
+    /** a range of rows of a feature matrix is only split between threads if each thread gets at least this many rows */
+    static final int MIN_ROWS_PER_THREAD = 1024;
+
+    private Parallel() {
+    }
+
+    interface RangeLoop {
+        /**
+         * processes the elements [from, to)
+         */
+        void run(int from, int to);
+    }
+
+    interface ChunkLoop {
+        /**
+         * processes the elements [from, to) of the given chunk (or block)
+         */
+        void run(int chunk, int from, int to);
+    }
+
+    interface RangeSum {
+        /**
+         * adds the sums of the elements [from, to) to sum
+         */
+        void accumulate(int from, int to, double[] sum);
+    }
+
+    /**
+     * @return true if a pool is given and the current thread does not belong to it
+     */
+    static boolean isOutside(ForkJoinPool pool) {
+        return pool != null && ForkJoinTask.getPool() != pool;
+    }
+
+    /**
+     * <p>runs the task in the pool and waits for its result, so that the parallel loops of the task use the threads of the pool.</p>
+     *
+     * <p>An exception of the task is rethrown as it is ({@link ForkJoinTask#join()} would wrap it into a new exception).</p>
+     */
+    static <T> T invoke(ForkJoinPool pool, Supplier<T> task) {
+        List<T> result = new ArrayList<>(1);
+        Throwable[] failure = new Throwable[1];
+        pool.invoke(ForkJoinTask.adapt(() -> {
+            try {
+                result.add(task.get());
+            } catch (RuntimeException | Error e) {
+                failure[0] = e;
+            }
+        }));
+        if (failure[0] instanceof RuntimeException)
+            throw (RuntimeException)failure[0];
+        if (failure[0] instanceof Error)
+            throw (Error)failure[0];
+        return result.get(0);
+    }
+
+    static void run(ForkJoinPool pool, Runnable task) {
+        invoke(pool, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * calls body.accept(i) for all i in [0, count); the tasks are distributed dynamically to the threads
+     */
+    static void forEach(int numThreads, int count, IntConsumer body) {
+        int numWorkers = Math.min(numThreads, count);
+        if (numWorkers <= 1) {
+            for (int i = 0; i < count; i++)
+                body.accept(i);
+            return;
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<?>> workers = new ArrayList<>(numWorkers);
+        for (int t = 0; t < numWorkers; t++) {
+            workers.add(ForkJoinTask.adapt(() -> {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement())
+                    body.accept(i);
+            }));
+        }
+        ForkJoinTask.invokeAll(workers);
+    }
+
+    /**
+     * @return the number of contiguous chunks that the elements [0, count) are split into
+     */
+    static int numChunks(int numThreads, int count) {
+        return numChunks(numThreads, count, MIN_RANGE_PER_THREAD);
+    }
+
+    /**
+     * @return the number of contiguous chunks of at least minRangePerThread elements (one per thread) that the elements
+     *         [0, count) are split into
+     */
+    static int numChunks(int numThreads, int count, int minRangePerThread) {
+        return Math.max(1, Math.min(numThreads, count / minRangePerThread));
+    }
+
+    static int chunkStart(int count, int numChunks, int chunk) {
+        return (int)((long)count * chunk / numChunks);
+    }
+
+    /**
+     * calls body.run(chunk, from, to) for the numChunks contiguous chunks that cover [0, count), each chunk in its own task
+     */
+    static void forChunks(int numChunks, int count, ChunkLoop body) {
+        if (numChunks == 1) {
+            body.run(0, 0, count);
+            return;
+        }
+        forEach(numChunks, numChunks, c -> body.run(c, chunkStart(count, numChunks, c), chunkStart(count, numChunks, c + 1)));
+    }
+
+    /**
+     * calls body.run(from, to) for contiguous chunks that cover [0, count)
+     */
+    static void forRange(int numThreads, int count, RangeLoop body) {
+        forRange(numThreads, count, MIN_RANGE_PER_THREAD, body);
+    }
+
+    static void forRange(int numThreads, int count, int minRangePerThread, RangeLoop body) {
+        forChunks(numChunks(numThreads, count, minRangePerThread), count, (c, from, to) -> body.run(from, to));
+    }
+
+    /**
+     * @return the number of blocks of blockSize elements (the last one may be shorter) that cover [0, count)
+     */
+    static int numBlocks(int count, int blockSize) {
+        return Math.max(1, (int)(((long)count + blockSize - 1) / blockSize));
+    }
+
+    static int blockStart(int count, int blockSize, int block) {
+        return (int)Math.min(count, (long)block * blockSize);
+    }
+
+    /**
+     * <p>calls body.run(block, from, to) for the blocks of blockSize elements that cover [0, count); the blocks are
+     * distributed dynamically to up to numThreads threads.</p>
+     *
+     * <p>Unlike the chunks of {@link #forChunks}, the blocks do not depend on the number of threads, so sums of
+     * the blocks that are added in block order do not depend on it either.</p>
+     */
+    static void forBlocks(int numThreads, int count, int blockSize, ChunkLoop body) {
+        int numBlocks = numBlocks(count, blockSize);
+        forEach(numThreads, numBlocks, b -> body.run(b, blockStart(count, blockSize, b), blockStart(count, blockSize, b + 1)));
+    }
+
+    /**
+     * <p>adds the sums of the elements [0, count) to sum; the chunks are accumulated into separate arrays that are added
+     * to sum in chunk order, so the result only depends on the number of chunks.</p>
+     *
+     * <p>With a single chunk, the elements are accumulated in order directly into sum, like a sequential loop.</p>
+     */
+    static void sum(int numThreads, int count, RangeSum body, double[] sum) {
+        int numChunks = numChunks(numThreads, count);
+        if (numChunks == 1) {
+            body.accumulate(0, count, sum);
+            return;
+        }
+        double[][] partial = new double[numChunks][sum.length];
+        forChunks(numChunks, count, (c, from, to) -> body.accumulate(from, to, partial[c]));
+        for (double[] p : partial) {
+            for (int k = 0; k < sum.length; k++)
+                sum[k] += p[k];
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 
 public final class Parameter implements Cloneable {
@@ -39,6 +40,14 @@ public final class Parameter implements Cloneable {
 
     Random random = new Random(DEFAULT_RANDOM_SEED);
 
+    int nr_thread = 1;
+
+    ForkJoinPool pool = null;
+
+    int search_block_size = 1;
+
+    boolean async_dual_cd = false;
+
     public Parameter(SolverType solver, double C, double eps) {
         setSolverType(solver);
         setC(C);
@@ -220,6 +229,87 @@ public final class Parameter implements Cloneable {
         this.random = random;
     }
 
+    /**
+     * <p>Sets the number of threads that are used for training (default 1).</p>
+     *
+     * <p>With more than one thread, the one-vs-rest subproblems of a multi-class problem and the folds of a
+     * cross validation are trained in parallel. Each class of a one-vs-rest training uses its own random generator, which is seeded
+     * in class order from {@link #setRandom(Random)}, also with one thread, and its solver runs with a single thread,
+     * so the one-vs-rest models do not depend on the number of threads. Each fold uses its own random generator as well,
+     * so the folds do not depend on the number of threads (but differ from the folds of a cross validation with one thread).</p>
+     *
+     * <p>In a training of a single subproblem (binary classification, regression, one-class SVM and {@link SolverType#MCSVM_CS}),
+     * the primal Newton solvers and the coordinate descent solvers of the L1-regularized problems split their passes
+     * over large problems between the threads. The partial sums are added in a fixed order, so a training is reproducible
+     * for a given number of threads. The number of chunks of a pass, and thus the rounding of its sums, depends on the number
+     * of threads, so models that are trained with different numbers of threads may differ slightly. Only the conjugate
+     * gradient iterations of the Newton solvers use blocks of a fixed size, whose sums do not depend on the number of threads.</p>
+     *
+     * <p>The threads are taken from the common {@link ForkJoinPool}, unless another pool is set with {@link #setForkJoinPool}.
+     * A pool runs at most as many threads as its parallelism, so a larger number of threads only splits the work into
+     * more tasks.</p>
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("numThreads must not be <= 0");
+        this.nr_thread = numThreads;
+    }
+
+    public int getNumThreads() {
+        return nr_thread;
+    }
+
+    /**
+     * <p>Sets the pool whose threads are used if {@link #setNumThreads(int)} &gt; 1 (default null: the common pool).</p>
+     *
+     * <p>{@link Linear#train}, {@link Linear#crossValidation} and {@link Linear#findParameters} then run in the pool,
+     * so long trainings don't occupy the common pool of the application. The calling thread waits for the result.</p>
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return pool;
+    }
+
+    /**
+     * <p>Sets the number of consecutive values of C that {@link Linear#findParameters} evaluates at once (default 1).</p>
+     *
+     * <p>By default, the values of C are evaluated one after another, each warm-started from the solutions of the previous C,
+     * until the solutions don't change anymore. With a block size &gt; 1, the submodels of a whole block of values
+     * are trained speculatively: the smallest C of the block is warm-started from the previous block, and all larger values
+     * are trained concurrently, warm-started from the smallest C. The stopping rule is then applied to the values of the block in order,
+     * so some of them may be trained in vain. The selected values depend on the block size; the random numbers of the submodels do not depend on the number of threads.</p>
+     */
+    public void setSearchBlockSize(int searchBlockSize) {
+        if (searchBlockSize <= 0)
+            throw new IllegalArgumentException("searchBlockSize must not be <= 0");
+        this.search_block_size = searchBlockSize;
+    }
+
+    public int getSearchBlockSize() {
+        return search_block_size;
+    }
+
+    /**
+     * <p>Enables the asynchronous parallel coordinate descent of the dual solvers {@link SolverType#L2R_L2LOSS_SVC_DUAL},
+     * {@link SolverType#L2R_L1LOSS_SVC_DUAL}, {@link SolverType#L2R_LR_DUAL}, {@link SolverType#L2R_L2LOSS_SVR_DUAL}
+     * and {@link SolverType#L2R_L1LOSS_SVR_DUAL} with {@link #setNumThreads(int)} threads (default false).</p>
+     *
+     * <p>The threads update disjoint blocks of the dual variables concurrently and share w without locking
+     * (PASSCoDe, Hsieh et al., ICML 2015). The shrinking and the stopping criteria are the same as in the sequential solvers,
+     * but since the order of the updates depends on the timing of the threads, the models are <b>not</b> reproducible.
+     * The classes of a one-vs-rest training are trained concurrently instead, so they don't use the asynchronous mode.</p>
+     */
+    public void setAsyncDualCoordinateDescent(boolean asyncDualCoordinateDescent) {
+        this.async_dual_cd = asyncDualCoordinateDescent;
+    }
+
+    public boolean isAsyncDualCoordinateDescent() {
+        return async_dual_cd;
+    }
+
     @Override
     public Parameter clone() {
         Parameter clone = new Parameter(solverType, C, eps, max_iters, p);
@@ -230,6 +320,10 @@ public final class Parameter implements Cloneable {
         clone.nu = nu;
         clone.regularize_bias = regularize_bias;
         clone.random = deepClone(random);
+        clone.nr_thread = nr_thread;
+        clone.pool = pool;
+        clone.search_block_size = search_block_size;
+        clone.async_dual_cd = async_dual_cd;
         return clone;
     }
 
@@ -0,0 +1,216 @@
+package de.bwaldvogel.liblinear;
+
+import static de.bwaldvogel.liblinear.SolverType.*;
+
+
+/**
+ * <p>Predictor is an immutable, thread-safe form of a {@link Model} for repeated predictions.</p>
+ *
+ * <p>The layout of the weights (number of features, number of weight vectors and the kind of decision) is computed
+ * once, and the methods do not allocate: {@link #predictValues} and {@link #predictProbability} use the array of the
+ * caller, {@link #predict(Feature[], double[])} uses a scratch array of the caller, and {@link #predict(Feature[])} uses
+ * an array per thread that is shared by all predictors (binary predictions of {@link Feature} arrays need none).
+ * The predictions are identical to the ones of {@link Linear#predict(Model, Feature[])} and the related methods.</p>
+ *
+ * <p>The weights are copied, so later changes of the model do not affect the predictor. A predictor can be shared
+ * by any number of threads.</p>
+ */
+public final class Predictor {
+
+    private final int      nr_class;
+    private final int      nr_w;
+    /** number of features including the bias */
+    private final int      n;
+    private final double[] w;
+    private final int[]    label;
+    private final double   rho;
+    private final boolean  regression;
+    private final boolean  one_class;
+    private final boolean  probability;
+
+    /** the decision values of {@link #predict(Feature[])}, grown to the largest number of weight vectors of the predictors */
+    private static final ThreadLocal<double[]> SCRATCH = new ThreadLocal<>();
+
+    public Predictor(Model model) {
+        nr_class = model.nr_class;
+        if (model.nr_class == 2 && model.solverType != MCSVM_CS)
+            nr_w = 1;
+        else
+            nr_w = model.nr_class;
+        if (model.bias >= 0)
+            n = model.nr_feature + 1;
+        else
+            n = model.nr_feature;
+
+        w = model.w.clone();
+        label = model.label == null ? null : model.label.clone();
+        rho = model.rho;
+        regression = model.solverType.isSupportVectorRegression();
+        one_class = model.solverType.isOneClass();
+        probability = model.isProbabilityModel();
+    }
+
+    public int getNrClass() {
+        return nr_class;
+    }
+
+    /**
+     * @see Model#isProbabilityModel()
+     */
+    public boolean isProbabilityModel() {
+        return probability;
+    }
+
+    public double predict(Feature[] x) {
+        if (nr_class == 2 && nr_w == 1)
+            return predictBinary(x);
+        return predictValues(x, scratch());
+    }
+
+    /**
+     * @param scratch an array for the decision values, see {@link #predictValues(Feature[], double[])}
+     */
+    public double predict(Feature[] x, double[] scratch) {
+        if (nr_class == 2 && nr_w == 1)
+            return predictBinary(x);
+        return predictValues(x, scratch);
+    }
+
+    private double predictBinary(Feature[] x) {
+        double dec_value = 0;
+        for (Feature lx : x) {
+            int idx = lx.getIndex();
+            // the dimension of testing data may exceed that of training
+            if (idx <= n)
+                dec_value += w[idx - 1] * lx.getValue();
+        }
+        if (one_class)
+            dec_value -= rho;
+        return decide(dec_value);
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     */
+    public double predict(FeatureMatrix x, int row) {
+        return predictValues(x, row, scratch());
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     *
+     * @param scratch an array for the decision values, see {@link #predictValues(Feature[], double[])}
+     */
+    public double predict(FeatureMatrix x, int row, double[] scratch) {
+        return predictValues(x, row, scratch);
+    }
+
+    private double[] scratch() {
+        double[] scratch = SCRATCH.get();
+        if (scratch == null || scratch.length < nr_w) {
+            scratch = new double[nr_w];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    /**
+     * @param dec_values receives the decision values; at least {@link #getNrClass()} elements for multi-class models,
+     *                   at least one element otherwise
+     */
+    public double predictValues(Feature[] x, double[] dec_values) {
+        checkLength(dec_values, nr_w);
+        for (int i = 0; i < nr_w; i++)
+            dec_values[i] = 0;
+
+        for (Feature lx : x) {
+            int idx = lx.getIndex();
+            // the dimension of testing data may exceed that of training
+            if (idx <= n) {
+                int offset = (idx - 1) * nr_w;
+                double value = lx.getValue();
+                for (int i = 0; i < nr_w; i++)
+                    dec_values[i] += w[offset + i] * value;
+            }
+        }
+
+        return decide(dec_values);
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     *
+     * @see #predictValues(Feature[], double[])
+     */
+    public double predictValues(FeatureMatrix x, int row, double[] dec_values) {
+        checkLength(dec_values, nr_w);
+        for (int i = 0; i < nr_w; i++)
+            dec_values[i] = 0;
+
+        x.addDecisionValues(row, w, n, nr_w, dec_values);
+
+        return decide(dec_values);
+    }
+
+    /**
+     * @param prob_estimates receives the probabilities of the classes; at least {@link #getNrClass()} elements
+     * @throws IllegalArgumentException if the model is not probabilistic (see {@link #isProbabilityModel()})
+     */
+    public double predictProbability(Feature[] x, double[] prob_estimates) throws IllegalArgumentException {
+        checkProbabilityModel(prob_estimates);
+        double label = predictValues(x, prob_estimates);
+        Linear.toProbabilityEstimates(nr_class, prob_estimates);
+        return label;
+    }
+
+    /**
+     * predicts the given row of the feature matrix
+     *
+     * @see #predictProbability(Feature[], double[])
+     */
+    public double predictProbability(FeatureMatrix x, int row, double[] prob_estimates) throws IllegalArgumentException {
+        checkProbabilityModel(prob_estimates);
+        double label = predictValues(x, row, prob_estimates);
+        Linear.toProbabilityEstimates(nr_class, prob_estimates);
+        return label;
+    }
+
+    private void checkProbabilityModel(double[] prob_estimates) {
+        if (!probability)
+            throw Linear.probabilityNotSupported();
+        checkLength(prob_estimates, nr_class);
+    }
+
+    private static void checkLength(double[] values, int length) {
+        if (values.length < length)
+            throw new IllegalArgumentException("array of length " + values.length + " is too short, at least " + length + " elements are needed");
+    }
+
+    private double decide(double[] dec_values) {
+        if (one_class)
+            dec_values[0] -= rho;
+
+        if (nr_class == 2)
+            return decide(dec_values[0]);
+
+        int dec_max_idx = 0;
+        for (int i = 1; i < nr_class; i++) {
+            if (dec_values[i] > dec_values[dec_max_idx])
+                dec_max_idx = i;
+        }
+        return label[dec_max_idx];
+    }
+
+    /**
+     * decision of a model with two classes
+     */
+    private double decide(double dec_value) {
+        if (regression)
+            return dec_value;
+        else if (one_class)
+            return (dec_value > 0) ? 1 : -1;
+        else
+            return (dec_value > 0) ? label[0] : label[1];
+    }
+
+}
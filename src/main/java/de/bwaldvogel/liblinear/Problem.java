@@ -48,12 +48,27 @@ public class Problem {
     /** array of sparse feature nodes */
     public Feature[][] x;
 
+    /**
+     * primitive storage of the feature vectors (e.g. {@link CsrMatrix}).
+     * If set, it is used instead of {@link #x}.
+     */
+    public FeatureMatrix matrix;
+
     /**
      * If bias &gt;= 0, we assume that one additional feature is added
      * to the end of each data instance
      */
     public double bias = -1;
 
+    /**
+     * @return the feature vectors of this problem, either {@link #matrix} or an adapter for {@link #x}
+     */
+    FeatureMatrix rows() {
+        if (matrix != null)
+            return matrix;
+        return new FeatureArrayMatrix(x);
+    }
+
     /**
      * @deprecated use {@link Problem#readFromFile(Path, double)} instead
      */
@@ -97,4 +112,28 @@ public class Problem {
     public static Problem readFromStream(InputStream inputStream, Charset charset, double bias) throws IOException, InvalidInputDataException {
         return Train.readProblem(inputStream, charset, bias);
     }
+
+    /**
+     * Writes the problem to a binary file, see {@link #readBinaryFile(Path)} and {@link #mapBinaryFile(Path)}.
+     */
+    public void writeBinaryFile(Path path) throws IOException {
+        BinaryProblemFile.write(this, path);
+    }
+
+    /**
+     * Reads a binary file that was written by {@link #writeBinaryFile(Path)} into a {@link CsrMatrix}
+     * (or an {@link IndicatorCsrMatrix} if all feature values are 1). This is a bulk read and much faster than parsing the LibSVM format.
+     */
+    public static Problem readBinaryFile(Path path) throws IOException {
+        return BinaryProblemFile.read(path);
+    }
+
+    /**
+     * Maps a binary file that was written by {@link #writeBinaryFile(Path)} into memory.
+     * Only the target values are loaded onto the heap; the feature vectors are read from
+     * the mapped file (see {@link MappedCsrMatrix}).
+     */
+    public static Problem mapBinaryFile(Path path) throws IOException {
+        return BinaryProblemFile.map(path);
+    }
 }
@@ -0,0 +1,283 @@
+package de.bwaldvogel.liblinear;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>Builds a {@link Problem} row by row into growable primitive arrays, without allocating
+ * {@link FeatureNode}s. The problem is stored as {@link CsrMatrix} in {@link Problem#matrix}, or as
+ * {@link IndicatorCsrMatrix} if all feature values (including the bias) are 1.</p>
+ *
+ * Rows are added either from arrays or with the reusable row cursor:
+ * <pre>
+ *  ProblemBuilder builder = new ProblemBuilder();
+ *  builder.addRow(1, new int[] {2, 3}, new double[] {0.1, 0.2});
+ *  builder.beginRow(2).add(2, 0.1).add(3, 0.3).add(4, -1.2).end();
+ *  Problem prob = builder.build(1);
+ * </pre>
+ *
+ * The bias feature (if bias &gt;= 0) is added once in {@link #build(double)} with index max_index+1.
+ *
+ * <p>Note: This class is not thread-safe.</p>
+ */
+public final class ProblemBuilder {
+
+    double[] y       = new double[16];
+    int[]    rowPtr  = new int[17];
+    int[]    indices = new int[64];
+    double[] values  = new double[64];
+    int      l;
+    int      nnz;
+    int      maxIndex;
+
+    private final Row row = new Row();
+    private boolean   rowOpen;
+
+    /**
+     * Adds a row with the given (1-based) feature indices, sorted in ascending order, and values.
+     * If a feature is rejected, the row is not added.
+     */
+    public ProblemBuilder addRow(double label, int[] indices, double[] values) {
+        if (indices.length != values.length)
+            throw new IllegalArgumentException("indices and values must have the same length");
+        Row r = beginRow(label);
+        for (int k = 0; k < indices.length; k++)
+            r.add(indices[k], values[k]);
+        return r.end();
+    }
+
+    /**
+     * Starts a new row. The features are added with the returned cursor, which is reused for every row.
+     * If the cursor rejects a feature, the whole row is discarded and the next row can be started.
+     *
+     * @throws IllegalStateException if the previous row was not ended
+     */
+    public Row beginRow(double label) {
+        if (rowOpen)
+            throw new IllegalStateException("the previous row was not ended");
+        if (l == y.length) {
+            int newCapacity = (int)Math.min(2L * l, Integer.MAX_VALUE - 8);
+            if (newCapacity == l)
+                throw new IllegalStateException("too many rows for a single problem");
+            y = Arrays.copyOf(y, newCapacity);
+            rowPtr = Arrays.copyOf(rowPtr, newCapacity + 1);
+        }
+        y[l] = label;
+        rowOpen = true;
+        row.lastIndex = 0;
+        return row;
+    }
+
+    /**
+     * @return the number of completed rows
+     */
+    public int getNumRows() {
+        return l;
+    }
+
+    /**
+     * @return the largest feature index of all completed rows
+     */
+    public int getMaxIndex() {
+        return maxIndex;
+    }
+
+    private void ensureFeatureCapacity(int capacity) {
+        if (capacity > indices.length) {
+            int newCapacity = (int)Math.min(Math.max(2L * indices.length, capacity), Integer.MAX_VALUE - 8);
+            if (newCapacity < capacity)
+                throw new IllegalStateException("too many features for a single problem");
+            indices = Arrays.copyOf(indices, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    /**
+     * Builds the problem with a {@link CsrMatrix} (or {@link IndicatorCsrMatrix}). The builder can be used further afterwards.
+     *
+     * @param bias if bias &gt;= 0, the feature (max_index+1, bias) is appended to each row
+     */
+    public Problem build(double bias) {
+        if (rowOpen)
+            throw new IllegalStateException("the last row was not ended");
+        return build(new ProblemBuilder[] {this}, bias);
+    }
+
+    private static Problem createProblem(ProblemBuilder[] parts, double bias) {
+        int l = 0;
+        int maxIndex = 0;
+        for (ProblemBuilder part : parts) {
+            l = Math.addExact(l, part.l);
+            maxIndex = Math.max(maxIndex, part.maxIndex);
+        }
+        if (bias >= 0 && maxIndex == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("the index of the bias feature would overflow, the largest feature index is " + maxIndex);
+
+        Problem prob = new Problem();
+        prob.bias = bias;
+        prob.l = l;
+        prob.n = maxIndex;
+        if (bias >= 0) {
+            prob.n++;
+        }
+        prob.y = new double[l];
+        int offset = 0;
+        for (ProblemBuilder part : parts) {
+            System.arraycopy(part.y, 0, prob.y, offset, part.l);
+            offset += part.l;
+        }
+        return prob;
+    }
+
+    private static boolean isIndicator(ProblemBuilder[] parts, double bias) {
+        if (bias >= 0 && bias != 1)
+            return false;
+        for (ProblemBuilder part : parts) {
+            for (int k = 0; k < part.nnz; k++) {
+                if (part.values[k] != 1)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * concatenates the rows of the given parts (in order) into a {@link CsrMatrix},
+     * or an {@link IndicatorCsrMatrix} if all values are 1
+     */
+    static Problem build(ProblemBuilder[] parts, double bias) {
+        Problem prob = createProblem(parts, bias);
+        long totalNnz = 0;
+        for (ProblemBuilder part : parts) {
+            totalNnz += part.nnz;
+        }
+        if (bias >= 0) {
+            totalNnz += prob.l;
+        }
+        if (totalNnz > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("too many features for a single problem");
+
+        boolean indicator = isIndicator(parts, bias);
+        int[] x_rowPtr = new int[prob.l + 1];
+        int[] x_indices = new int[(int)totalNnz];
+        double[] x_values = indicator ? null : new double[(int)totalNnz];
+        int i = 0;
+        int nnz = 0;
+        for (ProblemBuilder part : parts) {
+            if (bias < 0) {
+                System.arraycopy(part.indices, 0, x_indices, nnz, part.nnz);
+                if (!indicator)
+                    System.arraycopy(part.values, 0, x_values, nnz, part.nnz);
+                for (int row = 0; row < part.l; row++) {
+                    x_rowPtr[++i] = nnz + part.rowPtr[row + 1];
+                }
+                nnz += part.nnz;
+            } else {
+                for (int row = 0; row < part.l; row++) {
+                    int from = part.rowPtr[row];
+                    int length = part.rowPtr[row + 1] - from;
+                    System.arraycopy(part.indices, from, x_indices, nnz, length);
+                    if (!indicator)
+                        System.arraycopy(part.values, from, x_values, nnz, length);
+                    nnz += length;
+                    x_indices[nnz] = prob.n;
+                    if (!indicator)
+                        x_values[nnz] = bias;
+                    nnz++;
+                    x_rowPtr[++i] = nnz;
+                }
+            }
+        }
+        if (indicator)
+            prob.matrix = new IndicatorCsrMatrix(x_rowPtr, x_indices);
+        else
+            prob.matrix = new CsrMatrix(x_rowPtr, x_indices, x_values);
+        return prob;
+    }
+
+    /**
+     * concatenates the rows of the given parts (in order) into {@link FeatureNode}s in {@link Problem#x}
+     */
+    static Problem buildFeatureNodes(ProblemBuilder[] parts, double bias) {
+        Problem prob = createProblem(parts, bias);
+        prob.x = new Feature[prob.l][];
+        int i = 0;
+        for (ProblemBuilder part : parts) {
+            for (int row = 0; row < part.l; row++) {
+                int from = part.rowPtr[row];
+                int length = part.rowPtr[row + 1] - from;
+                Feature[] x = new Feature[bias >= 0 ? length + 1 : length];
+                for (int k = 0; k < length; k++) {
+                    x[k] = new FeatureNode(part.indices[from + k], part.values[from + k]);
+                }
+                if (bias >= 0) {
+                    x[length] = new FeatureNode(prob.n, bias);
+                }
+                prob.x[i++] = x;
+            }
+        }
+        return prob;
+    }
+
+    /**
+     * Cursor to add the features of the current row.
+     */
+    public final class Row {
+
+        private int lastIndex;
+
+        private Row() {
+        }
+
+        /**
+         * Adds a feature to the current row. The indices must be added in ascending order.
+         *
+         * @throws IllegalArgumentException if the index is invalid; the current row is then discarded
+         */
+        public Row add(int index, double value) {
+            if (!rowOpen)
+                throw new IllegalStateException("no row was started");
+            if (index <= 0) {
+                discardRow();
+                throw new IllegalArgumentException("index must be > 0");
+            }
+            if (index <= lastIndex) {
+                discardRow();
+                throw new IllegalArgumentException("indices must be sorted in ascending order");
+            }
+            lastIndex = index;
+            try {
+                ensureFeatureCapacity(nnz + 1);
+            } catch (IllegalStateException e) {
+                discardRow();
+                throw e;
+            }
+            indices[nnz] = index;
+            values[nnz] = value;
+            nnz++;
+            return this;
+        }
+
+        /**
+         * Completes the current row.
+         */
+        public ProblemBuilder end() {
+            if (!rowOpen)
+                throw new IllegalStateException("no row was started");
+            rowOpen = false;
+            maxIndex = Math.max(maxIndex, lastIndex);
+            l++;
+            rowPtr[l] = nnz;
+            return ProblemBuilder.this;
+        }
+
+        /**
+         * removes the features of the current row, so that a partial row is never added
+         */
+        private void discardRow() {
+            nnz = rowPtr[l];
+            rowOpen = false;
+        }
+    }
+
+}
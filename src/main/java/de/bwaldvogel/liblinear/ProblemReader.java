@@ -0,0 +1,508 @@
+package de.bwaldvogel.liblinear;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * <p>Parser for the LibSVM format that scans the raw bytes and parses the labels, indices and values
+ * in place into a {@link ProblemBuilder}. No String objects are created per line or token,
+ * except for error messages and the (rare) numbers that are not handled by the fast path.</p>
+ *
+ * <p>The parser behaves like the former BufferedReader/StringTokenizer based implementation:
+ * lines are terminated by '\n', '\r' or "\r\n" and tokens are separated by any of " \t\n\r\f:".</p>
+ */
+final class ProblemReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final long MIN_PARALLEL_FILE_SIZE = 16L << 20;
+    private static final long MIN_CHUNK_SIZE         = 4L << 20;
+    private static final long MAX_CHUNK_SIZE         = 256L << 20;
+
+    /** 10^0 to 10^22 are exactly representable as double */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final double bias;
+    private final Charset charset;
+
+    private final ProblemBuilder builder = new ProblemBuilder();
+    private int                  lineNr;
+    private Exception            failure;
+
+    /**
+     * @param charset the charset of the input; it must be ASCII compatible (see {@link #isAsciiCompatible(Charset)})
+     */
+    ProblemReader(double bias, Charset charset) {
+        this.bias = bias;
+        this.charset = charset;
+    }
+
+    static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    static ProblemReader parse(InputStream inputStream, Charset charset, double bias) throws IOException, InvalidInputDataException {
+        if (isAsciiCompatible(charset)) {
+            ProblemReader reader = new ProblemReader(bias, charset);
+            reader.read(inputStream);
+            return reader;
+        } else {
+            ProblemReader reader = new ProblemReader(bias, StandardCharsets.UTF_8);
+            reader.read(new TranscodingInputStream(new InputStreamReader(inputStream, charset)));
+            return reader;
+        }
+    }
+
+    /**
+     * <p>Parses the file in parallel if it is large enough and the charset is ASCII compatible.</p>
+     *
+     * <p>The file is split into byte ranges that end with a line feed. Each range is mapped into
+     * memory and parsed by a separate {@link ProblemReader} on the common {@link ForkJoinPool}.
+     * The rows of the ranges are concatenated in order, so the result is identical to sequential parsing.</p>
+     */
+    static ProblemReader[] parse(Path path, Charset charset, double bias) throws IOException, InvalidInputDataException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (parallelism <= 1 || !isAsciiCompatible(charset) || Files.size(path) < MIN_PARALLEL_FILE_SIZE) {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                return new ProblemReader[] {parse(inputStream, charset, bias)};
+            }
+        }
+
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, Files.size(path) / (4L * parallelism)));
+        return parse(path, charset, bias, chunkSize);
+    }
+
+    /**
+     * parses chunks of (approximately) the given size in parallel; the charset must be ASCII compatible
+     */
+    static ProblemReader[] parse(Path path, Charset charset, double bias, long chunkSize) throws IOException, InvalidInputDataException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0)
+                return new ProblemReader[] {new ProblemReader(bias, charset)};
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            long last = 0;
+            while (last < size) {
+                long next = findLineStart(channel, Math.min(size, last + chunkSize));
+                if (next - last > Integer.MAX_VALUE) {
+                    // a single line that does not fit into a chunk
+                    try (InputStream inputStream = Files.newInputStream(path)) {
+                        return new ProblemReader[] {parse(inputStream, charset, bias)};
+                    }
+                }
+                boundaries.add(next);
+                last = next;
+            }
+
+            AtomicBoolean aborted = new AtomicBoolean();
+            List<ForkJoinTask<ProblemReader>> tasks = new ArrayList<>();
+            for (int i = 0; i < boundaries.size() - 1; i++) {
+                long from = boundaries.get(i);
+                long length = boundaries.get(i + 1) - from;
+                tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                    ProblemReader reader = new ProblemReader(bias, charset);
+                    if (!aborted.get()) {
+                        try {
+                            ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                            reader.read(new ByteBufferInputStream(chunk));
+                        } catch (IOException | InvalidInputDataException | RuntimeException e) {
+                            reader.failure = e;
+                        }
+                    }
+                    return reader;
+                }));
+            }
+
+            ProblemReader[] parts = new ProblemReader[tasks.size()];
+            int lines = 0;
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = tasks.get(i).join();
+                Exception failure = parts[i].failure;
+                if (failure != null) {
+                    // the remaining chunks are not needed, but running tasks must not access the mapped file after we return
+                    aborted.set(true);
+                    for (int j = i + 1; j < tasks.size(); j++)
+                        tasks.get(j).quietlyJoin();
+
+                    if (failure instanceof InvalidInputDataException) {
+                        // translate the line number of the chunk to the line number of the file
+                        InvalidInputDataException invalidInputData = (InvalidInputDataException)failure;
+                        int lineNr = lines + invalidInputData.getLine();
+                        if (invalidInputData.getCause() instanceof Exception)
+                            throw new InvalidInputDataException(invalidInputData.getMessage(), lineNr, (Exception)invalidInputData.getCause());
+                        throw new InvalidInputDataException(invalidInputData.getMessage(), lineNr);
+                    }
+                    if (failure instanceof IOException)
+                        throw (IOException)failure;
+                    throw (RuntimeException)failure;
+                }
+                lines += parts[i].lineNr;
+            }
+            return parts;
+        }
+    }
+
+    /**
+     * @return the position after the first line feed at or after position-1, or the file size
+     */
+    private static long findLineStart(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        if (position >= size)
+            return size;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+        long pos = position - 1;
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read < 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n')
+                    return pos + i + 1;
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    void read(InputStream inputStream) throws IOException, InvalidInputDataException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int start = 0; // start of the current line
+        int pos = 0;
+        int limit = 0;
+        boolean skipLineFeed = false;
+        while (true) {
+            if (pos == limit) {
+                if (start > 0) {
+                    System.arraycopy(buf, start, buf, 0, limit - start);
+                    pos -= start;
+                    limit -= start;
+                    start = 0;
+                }
+                if (limit == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                int read = inputStream.read(buf, limit, buf.length - limit);
+                if (read < 0) {
+                    if (start < limit) {
+                        parseLine(buf, start, limit);
+                    }
+                    return;
+                }
+                limit += read;
+                continue;
+            }
+
+            byte b = buf[pos++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (b == '\n') {
+                    start = pos;
+                    continue;
+                }
+            }
+            if (b == '\n' || b == '\r') {
+                parseLine(buf, start, pos - 1);
+                skipLineFeed = b == '\r';
+                start = pos;
+            }
+        }
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ' ' || b == '\t' || b == ':' || b == '\f' || b == '\n' || b == '\r';
+    }
+
+    private static int skipDelimiters(byte[] buf, int pos, int to) {
+        while (pos < to && isDelimiter(buf[pos]))
+            pos++;
+        return pos;
+    }
+
+    private static int tokenEnd(byte[] buf, int pos, int to) {
+        while (pos < to && !isDelimiter(buf[pos]))
+            pos++;
+        return pos;
+    }
+
+    void parseLine(byte[] buf, int from, int to) throws InvalidInputDataException {
+        lineNr++;
+
+        int tokenStart = skipDelimiters(buf, from, to);
+        if (tokenStart == to)
+            throw new InvalidInputDataException("empty line", lineNr);
+        int tokenEnd = tokenEnd(buf, tokenStart, to);
+
+        double label;
+        try {
+            label = parseDouble(buf, tokenStart, tokenEnd);
+        } catch (NumberFormatException e) {
+            throw new InvalidInputDataException("invalid label: " + token(buf, tokenStart, tokenEnd), lineNr, e);
+        }
+
+        ProblemBuilder.Row row = builder.beginRow(label);
+        int indexBefore = 0;
+        while (true) {
+            int indexStart = skipDelimiters(buf, tokenEnd, to);
+            int indexEnd = tokenEnd(buf, indexStart, to);
+            int valueStart = skipDelimiters(buf, indexEnd, to);
+            if (valueStart == to)
+                break; // a trailing index without value is ignored
+            int valueEnd = tokenEnd(buf, valueStart, to);
+            tokenEnd = valueEnd;
+
+            int index;
+            try {
+                index = parseInt(buf, indexStart, indexEnd);
+            } catch (NumberFormatException e) {
+                throw new InvalidInputDataException("invalid index: " + token(buf, indexStart, indexEnd), lineNr, e);
+            }
+
+            // assert that indices are valid and sorted
+            if (index <= 0)
+                throw new InvalidInputDataException("invalid index: " + index, lineNr);
+            if (index <= indexBefore)
+                throw new InvalidInputDataException("indices must be sorted in ascending order", lineNr);
+            indexBefore = index;
+
+            double value;
+            try {
+                value = parseDouble(buf, valueStart, valueEnd);
+            } catch (NumberFormatException e) {
+                throw new InvalidInputDataException("invalid value: " + token(buf, valueStart, valueEnd), lineNr);
+            }
+
+            row.add(index, value);
+        }
+        row.end();
+    }
+
+    private String token(byte[] buf, int from, int to) {
+        return new String(buf, from, to - from, charset);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * see {@link Linear#atoi(String)}
+     */
+    int parseInt(byte[] buf, int from, int to) {
+        int pos = from;
+        if (pos < to && buf[pos] == '+')
+            pos++;
+        // up to 9 digits can't overflow
+        if (pos < to && to - pos <= 9) {
+            int ret = 0;
+            for (; pos < to; pos++) {
+                byte b = buf[pos];
+                if (!isDigit(b))
+                    return Linear.atoi(token(buf, from, to));
+                ret = ret * 10 + (b - '0');
+            }
+            return ret;
+        }
+        return Linear.atoi(token(buf, from, to));
+    }
+
+    /**
+     * <p>Parses decimal numbers with up to 15 significant digits and a decimal exponent of at most 22
+     * directly, since the result of a single multiplication or division of two exactly representable
+     * doubles is correctly rounded. Other numbers are passed to {@link Linear#atof(String)},
+     * so the result is always identical to {@link Double#parseDouble(String)}.</p>
+     */
+    double parseDouble(byte[] buf, int from, int to) {
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        for (; pos < to && isDigit(buf[pos]); pos++) {
+            hasDigits = true;
+            if (mantissa != 0 || buf[pos] != '0') {
+                mantissa = mantissa * 10 + (buf[pos] - '0');
+                significantDigits++;
+            }
+        }
+        if (pos < to && buf[pos] == '.') {
+            pos++;
+            for (; pos < to && isDigit(buf[pos]); pos++) {
+                hasDigits = true;
+                if (mantissa != 0 || buf[pos] != '0') {
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                    significantDigits++;
+                }
+                exponent--;
+            }
+        }
+        if (!hasDigits || significantDigits > 15)
+            return Linear.atof(token(buf, from, to));
+
+        if (pos < to && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            if (pos == to || to - pos > 4)
+                return Linear.atof(token(buf, from, to));
+            int exp = 0;
+            for (; pos < to && isDigit(buf[pos]); pos++) {
+                exp = exp * 10 + (buf[pos] - '0');
+            }
+            exponent += negativeExponent ? -exp : exp;
+        }
+        if (pos != to)
+            return Linear.atof(token(buf, from, to));
+
+        double ret;
+        if (mantissa == 0) {
+            ret = 0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            ret = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            ret = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Linear.atof(token(buf, from, to));
+        }
+        return negative ? -ret : ret;
+    }
+
+    /**
+     * @return the problem with {@link FeatureNode}s in {@link Problem#x}
+     */
+    Problem toProblem() {
+        return toProblem(new ProblemReader[] {this});
+    }
+
+    /**
+     * @return the problem with a {@link CsrMatrix} in {@link Problem#matrix}
+     */
+    Problem toCompactProblem() {
+        return toCompactProblem(new ProblemReader[] {this});
+    }
+
+    private static ProblemBuilder[] builders(ProblemReader[] parts) {
+        ProblemBuilder[] builders = new ProblemBuilder[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            builders[i] = parts[i].builder;
+        return builders;
+    }
+
+    /**
+     * concatenates the rows of the given parts (in order)
+     */
+    static Problem toProblem(ProblemReader[] parts) {
+        return ProblemBuilder.buildFeatureNodes(builders(parts), parts[0].bias);
+    }
+
+    /**
+     * concatenates the rows of the given parts (in order)
+     */
+    static Problem toCompactProblem(ProblemReader[] parts) {
+        return ProblemBuilder.build(builders(parts), parts[0].bias);
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+    }
+
+    /**
+     * Re-encodes the characters of a reader as UTF-8, for input charsets that are not ASCII compatible.
+     */
+    private static final class TranscodingInputStream extends InputStream {
+
+        private final Reader         reader;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer     chars   = CharBuffer.allocate(8192);
+        private final ByteBuffer     bytes   = ByteBuffer.allocate(4 * 8192);
+        private boolean              endOfInput;
+
+        TranscodingInputStream(Reader reader) {
+            this.reader = reader;
+            bytes.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (!bytes.hasRemaining()) {
+                if (endOfInput)
+                    return -1;
+                if (reader.read(chars) < 0)
+                    endOfInput = true;
+                chars.flip();
+                bytes.clear();
+                encoder.encode(chars, bytes, endOfInput);
+                if (endOfInput)
+                    encoder.flush(bytes);
+                chars.compact();
+                bytes.flip();
+            }
+            int count = Math.min(len, bytes.remaining());
+            bytes.get(b, off, count);
+            return count;
+        }
+    }
+
+}
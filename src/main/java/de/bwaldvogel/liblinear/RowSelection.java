@@ -0,0 +1,87 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * View of selected rows of a {@link FeatureMatrix}. The feature vectors are not copied.
+ */
+final class RowSelection extends FeatureMatrix {
+
+    private final FeatureMatrix matrix;
+    private final int[]         rows;
+
+    RowSelection(FeatureMatrix matrix, int[] rows) {
+        this.matrix = matrix;
+        this.rows = rows;
+    }
+
+    @Override
+    public int getNumRows() {
+        return rows.length;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return matrix.getRowLength(rows[row]);
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        return matrix.getIndex(rows[row], k);
+    }
+
+    @Override
+    public int[] getIndices(int row, int[] buffer) {
+        return matrix.getIndices(rows[row], buffer);
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return matrix.getValue(rows[row], k);
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return matrix.nrm2_sq(rows[row]);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return matrix.dot(rows[row], s);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        matrix.axpy(a, rows[row], y);
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        matrix.atomic_axpy(a, rows[row], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return matrix.sparse_dot(rows[row1], rows[row2]);
+    }
+
+    @Override
+    void addDecisionValues(int row, double[] w, int n, int nr_w, double[] dec_values) {
+        matrix.addDecisionValues(rows[row], w, n, nr_w, dec_values);
+    }
+
+    @Override
+    FeatureMatrix select(int[] selectedRows) {
+        return view(selectedRows);
+    }
+
+    /**
+     * a view of a view refers directly to the rows of the underlying matrix
+     */
+    @Override
+    FeatureMatrix view(int[] selectedRows) {
+        int[] newRows = new int[selectedRows.length];
+        for (int i = 0; i < selectedRows.length; i++)
+            newRows[i] = rows[selectedRows[i]];
+        return new RowSelection(matrix, newRows);
+    }
+
+}
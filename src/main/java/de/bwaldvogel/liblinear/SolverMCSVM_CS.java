@@ -37,9 +37,10 @@ class SolverMCSVM_CS {
     private final double[] G;
     private final int      max_iter;
     private final int      w_size, l;
-    private final int     nr_class;
-    private final Problem prob;
-    private final Random  random;
+    private final int           nr_class;
+    private final Problem       prob;
+    private final FeatureMatrix x;
+    private final Random        random;
 
     public SolverMCSVM_CS(Problem prob, int nr_class, double[] C, double eps, Random random) {
         this.w_size = prob.n;
@@ -49,6 +50,7 @@ class SolverMCSVM_CS {
         this.random = random;
         this.max_iter = 100000;
         this.prob = prob;
+        this.x = prob.rows();
         this.C = C;
         this.B = new double[nr_class];
         this.G = new double[nr_class];
@@ -76,6 +78,7 @@ class SolverMCSVM_CS {
         double[] QD = new double[l];
         int[] d_ind = new int[nr_class];
         double[] d_val = new double[nr_class];
+        int[] xi_index = null;
         int[] alpha_index = new int[nr_class * l];
         int[] y_index = new int[l];
         int active_size = l;
@@ -97,8 +100,8 @@ class SolverMCSVM_CS {
             for (m = 0; m < nr_class; m++)
                 alpha_index[i * nr_class + m] = m;
             QD[i] = 0;
-            for (Feature xi : prob.x[i]) {
-                double val = xi.getValue();
+            for (int k = 0; k < x.getRowLength(i); k++) {
+                double val = x.getValue(i, k);
                 QD[i] += val * val;
 
                 // Uncomment the for loop if initial alpha isn't zero
@@ -137,12 +140,15 @@ class SolverMCSVM_CS {
                     if (y_index[i] < active_size_i[i])
                         G[y_index[i]] = 0;
 
-                    for (Feature xi : prob.x[i]) {
+                    int length = x.getRowLength(i);
+                    xi_index = x.getIndices(i, xi_index);
+                    for (int k = 0; k < length; k++) {
                         // double *w_i = &w[(xi.index-1)*nr_class];
-                        int w_offset = (xi.getIndex() - 1) * nr_class;
+                        int w_offset = (xi_index[k] - 1) * nr_class;
+                        double value = x.getValue(i, k);
                         for (m = 0; m < active_size_i[i]; m++)
                             // G[m] += w_i[alpha_index_i[m]]*(xi.value);
-                            G[m] += w[w_offset + alpha_index_i.get(m)] * (xi.getValue());
+                            G[m] += w[w_offset + alpha_index_i.get(m)] * value;
 
                     }
 
@@ -205,11 +211,12 @@ class SolverMCSVM_CS {
                         }
                     }
 
-                    for (Feature xi : prob.x[i]) {
+                    for (int k = 0; k < length; k++) {
                         // double *w_i = &w[(xi->index-1)*nr_class];
-                        int w_offset = (xi.getIndex() - 1) * nr_class;
+                        int w_offset = (xi_index[k] - 1) * nr_class;
+                        double value = x.getValue(i, k);
                         for (m = 0; m < nz_d; m++) {
-                            w[w_offset + d_ind[m]] += d_val[m] * xi.getValue();
+                            w[w_offset + d_ind[m]] += d_val[m] * value;
                         }
                     }
                 }
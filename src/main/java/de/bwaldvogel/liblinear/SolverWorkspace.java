@@ -0,0 +1,189 @@
+package de.bwaldvogel.liblinear;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * <p>Working arrays of the solvers that are reused across the {@code train_one} calls of a training, e.g. for the
+ * classes of a one-vs-rest model or for the C values of a parameter search.</p>
+ *
+ * <p>The arrays are allocated on first use and kept as long as the requested length does not change. A reused array
+ * is cleared, so it behaves like a freshly allocated one. A workspace must only be used by one solver at a time.</p>
+ *
+ * <p>The workspace also remembers the norm of the gradient at w=0 of each class (see {@link #getZeroGradientNorm}),
+ * so all trainings with a workspace and the workspaces of its {@link Pool} must be for the same problem.</p>
+ */
+final class SolverWorkspace {
+
+    enum DoubleArray {
+        NEWTON_S, NEWTON_R, NEWTON_G, NEWTON_M, NEWTON_W0, PCG_D, PCG_HD, PCG_Z, PCG_BLOCK_SUMS,
+        ERM_WX, ERM_TMP, ERM_D, COST, DUAL_QD, DUAL_ALPHA
+    }
+
+    enum IntArray {
+        ERM_I, DUAL_INDEX, DUAL_TMP_INDEX
+    }
+
+    enum ByteArray {
+        DUAL_Y
+    }
+
+    private final Map<DoubleArray, double[]> doubles = new EnumMap<>(DoubleArray.class);
+    private final Map<IntArray, int[]>       ints    = new EnumMap<>(IntArray.class);
+    private final Map<ByteArray, byte[]>     bytes   = new EnumMap<>(ByteArray.class);
+
+    /**
+     * hands out workspaces to concurrent tasks; a returned workspace is reused by the next task.
+     * The workspaces share the gradient norms of the parent workspace.
+     */
+    static final class Pool {
+
+        private final Queue<SolverWorkspace> free = new ConcurrentLinkedQueue<>();
+        private final SolverWorkspace        parent;
+
+        Pool(SolverWorkspace parent) {
+            this.parent = parent;
+        }
+
+        SolverWorkspace take() {
+            SolverWorkspace workspace = free.poll();
+            return workspace != null ? workspace : new SolverWorkspace(parent.zeroGradientNorms);
+        }
+
+        void release(SolverWorkspace workspace) {
+            free.add(workspace);
+        }
+
+    }
+
+    /**
+     * the norm of the gradient at w=0 for the costs Cp, Cn and C of a class
+     */
+    private static final class ZeroGradientNorm {
+
+        final SolverType solverType;
+        final double     p;
+        final double     Cp;
+        final double     Cn;
+        final double     C;
+        final double     gnorm0;
+
+        ZeroGradientNorm(Parameter param, double Cp, double Cn, double gnorm0) {
+            this.solverType = param.solverType;
+            this.p = param.p;
+            this.Cp = Cp;
+            this.Cn = Cn;
+            this.C = param.C;
+            this.gnorm0 = gnorm0;
+        }
+
+    }
+
+    private final Map<Integer, ZeroGradientNorm> zeroGradientNorms;
+
+    private FeatureMatrix rowNormsMatrix;
+    private double[]      rowNorms;
+
+    private double[][] partialSums = new double[0][];
+
+    SolverWorkspace() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private SolverWorkspace(Map<Integer, ZeroGradientNorm> zeroGradientNorms) {
+        this.zeroGradientNorms = zeroGradientNorms;
+    }
+
+    double[] get(DoubleArray name, int length) {
+        double[] array = doubles.get(name);
+        if (array == null || array.length != length) {
+            array = new double[length];
+            doubles.put(name, array);
+        } else {
+            Arrays.fill(array, 0);
+        }
+        return array;
+    }
+
+    int[] get(IntArray name, int length) {
+        int[] array = ints.get(name);
+        if (array == null || array.length != length) {
+            array = new int[length];
+            ints.put(name, array);
+        } else {
+            Arrays.fill(array, 0);
+        }
+        return array;
+    }
+
+    byte[] get(ByteArray name, int length) {
+        byte[] array = bytes.get(name);
+        if (array == null || array.length != length) {
+            array = new byte[length];
+            bytes.put(name, array);
+        } else {
+            Arrays.fill(array, (byte)0);
+        }
+        return array;
+    }
+
+    /**
+     * <p>The accumulators of the threads that sum the rows of a pass (see {@link L2R_ErmFunction#sum_rows}).</p>
+     *
+     * <p>Unlike the arrays of {@link #get(DoubleArray, int)}, the accumulators are not cleared (the threads clear them in parallel),
+     * and more accumulators are only allocated if a pass is split into more chunks than before.</p>
+     *
+     * @return an array whose first count arrays have the given length
+     */
+    double[][] partialSums(int count, int length) {
+        if (partialSums.length < count)
+            partialSums = Arrays.copyOf(partialSums, count);
+        for (int c = 0; c < count; c++) {
+            if (partialSums[c] == null || partialSums[c].length != length)
+                partialSums[c] = new double[length];
+        }
+        return partialSums;
+    }
+
+    /**
+     * <p>The gradient at w=0 is linear in the costs of the instances. If the costs of the class are the costs of an
+     * earlier training multiplied by a power of two, e.g. the next C of a parameter search, every product and sum of
+     * the gradient is scaled exactly, so the scaled norm is identical to a new evaluation.</p>
+     *
+     * @return the norm of the gradient at w=0 of the given class, or NaN if it must be evaluated
+     */
+    double getZeroGradientNorm(Parameter param, int cls, double Cp, double Cn) {
+        ZeroGradientNorm known = zeroGradientNorms.get(cls);
+        if (known == null || known.solverType != param.solverType || known.p != param.p)
+            return Double.NaN;
+        double factor = param.C / known.C;
+        if (factor != Math.scalb(1.0, Math.getExponent(factor)) || Cp != known.Cp * factor || Cn != known.Cn * factor)
+            return Double.NaN;
+        double gnorm0 = known.gnorm0 * factor;
+        return Double.isInfinite(gnorm0) ? Double.NaN : gnorm0;
+    }
+
+    void setZeroGradientNorm(Parameter param, int cls, double Cp, double Cn, double gnorm0) {
+        zeroGradientNorms.put(cls, new ZeroGradientNorm(param, Cp, Cn, gnorm0));
+    }
+
+    /**
+     * @return x.nrm2_sq(i) for the first l rows of x; the norms are only computed again for another matrix
+     */
+    double[] rowNorms(FeatureMatrix x, int l) {
+        if (rowNormsMatrix != x || rowNorms.length != l) {
+            double[] norms = new double[l];
+            for (int i = 0; i < l; i++)
+                norms[i] = x.nrm2_sq(i);
+            rowNorms = norms;
+            rowNormsMatrix = x;
+        }
+        return rowNorms;
+    }
+
+}
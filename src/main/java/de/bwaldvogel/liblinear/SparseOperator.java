@@ -1,7 +1,20 @@
 package de.bwaldvogel.liblinear;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+
 class SparseOperator {
 
+    private static final VarHandle DOUBLE_ARRAY = MethodHandles.arrayElementVarHandle(double[].class);
+
+    /**
+     * y[i] += a, atomically with respect to concurrent calls for the same element
+     */
+    static void atomic_add(double[] y, int i, double a) {
+        DOUBLE_ARRAY.getAndAdd(y, i, a);
+    }
+
     static double nrm2_sq(Feature[] x) {
         double ret = 0;
         for (Feature feature : x) {
@@ -49,4 +62,256 @@ class SparseOperator {
         }
     }
 
+    static double nrm2_sq(double[] values, int from, int to) {
+        double ret = 0;
+        for (int k = from; k < to; k++) {
+            ret += values[k] * values[k];
+        }
+        return (ret);
+    }
+
+    static double dot(double[] s, int[] indices, double[] values, int from, int to) {
+        double ret = 0;
+        for (int k = from; k < to; k++) {
+            ret += s[indices[k] - 1] * values[k];
+        }
+        return (ret);
+    }
+
+    static double sparse_dot(int[] indices, double[] values, int from1, int to1, int from2, int to2) {
+        double ret = 0;
+
+        int pos1 = from1;
+        int pos2 = from2;
+
+        while (pos1 < to1 && pos2 < to2) {
+            int index1 = indices[pos1];
+            int index2 = indices[pos2];
+            if (index1 == index2) {
+                ret += values[pos1] * values[pos2];
+                pos1++;
+                pos2++;
+            } else {
+                if (index1 > index2) {
+                    pos2++;
+                } else {
+                    pos1++;
+                }
+            }
+        }
+
+        return (ret);
+    }
+
+    static void axpy(double a, int[] indices, double[] values, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            y[indices[k] - 1] += a * values[k];
+        }
+    }
+
+    static void atomic_axpy(double a, int[] indices, double[] values, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            atomic_add(y, indices[k] - 1, a * values[k]);
+        }
+    }
+
+    // single-precision values, accumulated in double precision
+
+    static double nrm2_sq(float[] values, int from, int to) {
+        double ret = 0;
+        for (int k = from; k < to; k++) {
+            double value = values[k];
+            ret += value * value;
+        }
+        return (ret);
+    }
+
+    static double dot(double[] s, int[] indices, float[] values, int from, int to) {
+        double ret = 0;
+        for (int k = from; k < to; k++) {
+            ret += s[indices[k] - 1] * values[k];
+        }
+        return (ret);
+    }
+
+    static double sparse_dot(int[] indices, float[] values, int from1, int to1, int from2, int to2) {
+        double ret = 0;
+
+        int pos1 = from1;
+        int pos2 = from2;
+
+        while (pos1 < to1 && pos2 < to2) {
+            int index1 = indices[pos1];
+            int index2 = indices[pos2];
+            if (index1 == index2) {
+                ret += (double)values[pos1] * values[pos2];
+                pos1++;
+                pos2++;
+            } else {
+                if (index1 > index2) {
+                    pos2++;
+                } else {
+                    pos1++;
+                }
+            }
+        }
+
+        return (ret);
+    }
+
+    static void axpy(double a, int[] indices, float[] values, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            y[indices[k] - 1] += a * values[k];
+        }
+    }
+
+    static void atomic_axpy(double a, int[] indices, float[] values, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            atomic_add(y, indices[k] - 1, a * values[k]);
+        }
+    }
+
+    // indicator features with the implicit value 1
+
+    static double dot(double[] s, int[] indices, int from, int to) {
+        double ret = 0;
+        for (int k = from; k < to; k++) {
+            ret += s[indices[k] - 1];
+        }
+        return (ret);
+    }
+
+    static double sparse_dot(int[] indices, int from1, int to1, int from2, int to2) {
+        double ret = 0;
+
+        int pos1 = from1;
+        int pos2 = from2;
+
+        while (pos1 < to1 && pos2 < to2) {
+            int index1 = indices[pos1];
+            int index2 = indices[pos2];
+            if (index1 == index2) {
+                ret++;
+                pos1++;
+                pos2++;
+            } else {
+                if (index1 > index2) {
+                    pos2++;
+                } else {
+                    pos1++;
+                }
+            }
+        }
+
+        return (ret);
+    }
+
+    static void axpy(double a, int[] indices, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            y[indices[k] - 1] += a;
+        }
+    }
+
+    static void atomic_axpy(double a, int[] indices, int from, int to, double[] y) {
+        for (int k = from; k < to; k++) {
+            atomic_add(y, indices[k] - 1, a);
+        }
+    }
+
+    // varint encoded index gaps (see VarintCsrMatrix), decoded on the fly
+
+    static double dot(double[] s, byte[] indexBytes, int bytePos, double[] values, int from, int to) {
+        double ret = 0;
+        int index = 0;
+        for (int k = from; k < to; k++) {
+            int b = indexBytes[bytePos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[bytePos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+            ret += s[index - 1] * values[k];
+        }
+        return (ret);
+    }
+
+    static double sparse_dot(byte[] indexBytes, double[] values, int bytePos1, int from1, int to1, int bytePos2, int from2, int to2) {
+        double ret = 0;
+
+        int pos1 = from1;
+        int pos2 = from2;
+        int index1 = 0;
+        int index2 = 0;
+        boolean next1 = true;
+        boolean next2 = true;
+
+        while (pos1 < to1 && pos2 < to2) {
+            if (next1) {
+                int b = indexBytes[bytePos1++];
+                int gap = b & 0x7f;
+                for (int shift = 7; b < 0; shift += 7) {
+                    b = indexBytes[bytePos1++];
+                    gap |= (b & 0x7f) << shift;
+                }
+                index1 += gap;
+            }
+            if (next2) {
+                int b = indexBytes[bytePos2++];
+                int gap = b & 0x7f;
+                for (int shift = 7; b < 0; shift += 7) {
+                    b = indexBytes[bytePos2++];
+                    gap |= (b & 0x7f) << shift;
+                }
+                index2 += gap;
+            }
+            if (index1 == index2) {
+                ret += values[pos1] * values[pos2];
+                pos1++;
+                pos2++;
+                next1 = true;
+                next2 = true;
+            } else {
+                if (index1 > index2) {
+                    pos2++;
+                    next1 = false;
+                    next2 = true;
+                } else {
+                    pos1++;
+                    next1 = true;
+                    next2 = false;
+                }
+            }
+        }
+
+        return (ret);
+    }
+
+    static void axpy(double a, byte[] indexBytes, int bytePos, double[] values, int from, int to, double[] y) {
+        int index = 0;
+        for (int k = from; k < to; k++) {
+            int b = indexBytes[bytePos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[bytePos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+            y[index - 1] += a * values[k];
+        }
+    }
+
+    static void atomic_axpy(double a, byte[] indexBytes, int bytePos, double[] values, int from, int to, double[] y) {
+        int index = 0;
+        for (int k = from; k < to; k++) {
+            int b = indexBytes[bytePos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[bytePos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+            atomic_add(y, index - 1, a * values[k]);
+        }
+    }
 }
@@ -3,19 +3,13 @@ package de.bwaldvogel.liblinear;
 import static de.bwaldvogel.liblinear.Linear.*;
 import static de.bwaldvogel.liblinear.SolverType.*;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
 
 
 public class Train {
@@ -32,6 +26,7 @@ public class Train {
     private boolean   cross_validation = false;
     private String    inputFilename;
     private String    modelFilename;
+    private String    cacheFilename;
     private int       nr_fold;
     private Parameter param            = null;
     private Problem   prob             = null;
@@ -135,6 +130,9 @@ public class Train {
             + "-wi weight: weights adjust the parameter C of different classes (see README for details)%n"
             + "-v n: n-fold cross validation mode%n"
             + "-C : find parameters (C for -s 0, 2 and C, p for -s 11)%n"
+            + "-m nr_thread : use nr_thread threads for training (default 1)%n"
+            + "-x cache_file : binary cache of the training set; written after parsing training_set_file and%n"
+            + "       read instead of parsing on later runs (as long as it is newer and has the same bias)%n"
             + "-q : quiet mode (no outputs)%n");
         System.exit(1);
     }
@@ -159,6 +157,7 @@ public class Train {
         // default values
         bias = -1;
         cross_validation = false;
+        cacheFilename = null;
 
         // parse options
         for (i = 0; i < argv.length; i++) {
@@ -214,6 +213,12 @@ public class Train {
                     param.regularize_bias = false;
                     i--;
                     break;
+                case 'x':
+                    cacheFilename = argv[i];
+                    break;
+                case 'm':
+                    param.setNumThreads(atoi(argv[i]));
+                    break;
                 default:
                     System.err.println("unknown option");
                     exit_with_help();
@@ -298,9 +303,7 @@ public class Train {
      * @throws InvalidInputDataException if the input file is not correctly formatted
      */
     public static Problem readProblem(Path path, double bias) throws IOException, InvalidInputDataException {
-        try (InputStream inputStream = Files.newInputStream(path)) {
-            return readProblem(inputStream, bias);
-        }
+        return readProblem(path, Charset.defaultCharset(), bias);
     }
 
     /**
@@ -311,10 +314,13 @@ public class Train {
         return readProblem(file.toPath(), charset, bias);
     }
 
+    /**
+     * reads a problem from LibSVM format; large files are split into chunks that are parsed in parallel
+     * @throws IOException obviously in case of any I/O exception ;)
+     * @throws InvalidInputDataException if the input file is not correctly formatted
+     */
     public static Problem readProblem(Path path, Charset charset, double bias) throws IOException, InvalidInputDataException {
-        try (InputStream inputStream = Files.newInputStream(path)) {
-            return readProblem(inputStream, charset, bias);
-        }
+        return ProblemReader.toProblem(ProblemReader.parse(path, charset, bias));
     }
 
     public static Problem readProblem(InputStream inputStream, double bias) throws IOException, InvalidInputDataException {
@@ -322,74 +328,26 @@ public class Train {
     }
 
     public static Problem readProblem(InputStream inputStream, Charset charset, double bias) throws IOException, InvalidInputDataException {
-        BufferedReader fp = new BufferedReader(new InputStreamReader(inputStream, charset));
-        List<Double> vy = new ArrayList<>();
-        List<Feature[]> vx = new ArrayList<>();
-        int max_index = 0;
-
-        int lineNr = 0;
-
-        while (true) {
-            String line = fp.readLine();
-            if (line == null)
-                break;
-            lineNr++;
-
-            StringTokenizer st = new StringTokenizer(line, " \t\n\r\f:");
-            String token;
-            try {
-                token = st.nextToken();
-            } catch (NoSuchElementException e) {
-                throw new InvalidInputDataException("empty line", lineNr, e);
-            }
-
-            try {
-                vy.add(atof(token));
-            } catch (NumberFormatException e) {
-                throw new InvalidInputDataException("invalid label: " + token, lineNr, e);
-            }
+        return ProblemReader.parse(inputStream, charset, bias).toProblem();
+    }
 
-            int m = st.countTokens() / 2;
-            Feature[] x;
-            if (bias >= 0) {
-                x = new Feature[m + 1];
-            } else {
-                x = new Feature[m];
-            }
-            int indexBefore = 0;
-            for (int j = 0; j < m; j++) {
-
-                token = st.nextToken();
-                int index;
-                try {
-                    index = atoi(token);
-                } catch (NumberFormatException e) {
-                    throw new InvalidInputDataException("invalid index: " + token, lineNr, e);
-                }
-
-                // assert that indices are valid and sorted
-                if (index <= 0)
-                    throw new InvalidInputDataException("invalid index: " + index, lineNr);
-                if (index <= indexBefore)
-                    throw new InvalidInputDataException("indices must be sorted in ascending order", lineNr);
-                indexBefore = index;
-
-                token = st.nextToken();
-                try {
-                    double value = atof(token);
-                    x[j] = new FeatureNode(index, value);
-                } catch (NumberFormatException e) {
-                    throw new InvalidInputDataException("invalid value: " + token, lineNr);
-                }
-            }
-            if (m > 0) {
-                max_index = Math.max(max_index, x[m - 1].getIndex());
-            }
+    /**
+     * reads a problem from LibSVM format into a {@link CsrMatrix} (see {@link Problem#matrix}),
+     * or an {@link IndicatorCsrMatrix} if all feature values are 1,
+     * instead of creating a {@link FeatureNode} per feature
+     * @throws IOException obviously in case of any I/O exception ;)
+     * @throws InvalidInputDataException if the input file is not correctly formatted
+     */
+    public static Problem readCompactProblem(Path path, double bias) throws IOException, InvalidInputDataException {
+        return readCompactProblem(path, Charset.defaultCharset(), bias);
+    }
 
-            vx.add(x);
-        }
+    public static Problem readCompactProblem(Path path, Charset charset, double bias) throws IOException, InvalidInputDataException {
+        return ProblemReader.toCompactProblem(ProblemReader.parse(path, charset, bias));
+    }
 
-        return constructProblem(vy, vx, max_index, bias);
+    public static Problem readCompactProblem(InputStream inputStream, Charset charset, double bias) throws IOException, InvalidInputDataException {
+        return ProblemReader.parse(inputStream, charset, bias).toCompactProblem();
     }
 
     public void readProblem(Path path) throws IOException, InvalidInputDataException {
@@ -404,6 +362,32 @@ public class Train {
         prob = Train.readProblem(Paths.get(filename), bias);
     }
 
+    /**
+     * reads the problem from the binary cache file if it is up to date,
+     * otherwise the problem is parsed and the cache file is (re-)written
+     */
+    void readProblem(Path path, Path cachePath) throws IOException, InvalidInputDataException {
+        if (isCacheUpToDate(path, cachePath)) {
+            prob = Problem.readBinaryFile(cachePath);
+            return;
+        }
+        prob = readCompactProblem(path, bias);
+        prob.writeBinaryFile(cachePath);
+    }
+
+    private boolean isCacheUpToDate(Path path, Path cachePath) throws IOException {
+        if (!Files.exists(cachePath))
+            return false;
+        if (Files.getLastModifiedTime(cachePath).compareTo(Files.getLastModifiedTime(path)) < 0)
+            return false;
+        try {
+            return Double.compare(BinaryProblemFile.readHeader(cachePath).bias, bias) == 0;
+        } catch (IOException e) {
+            System.err.println("ignoring invalid cache file " + cachePath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
     private static int[] addToArray(int[] array, int newElement) {
         int length = array != null ? array.length : 0;
         int[] newArray = new int[length + 1];
@@ -424,34 +408,12 @@ public class Train {
         return newArray;
     }
 
-    private static Problem constructProblem(List<Double> vy, List<Feature[]> vx, int max_index, double bias) {
-        Problem prob = new Problem();
-        prob.bias = bias;
-        prob.l = vy.size();
-        prob.n = max_index;
-        if (bias >= 0) {
-            prob.n++;
-        }
-        prob.x = new Feature[prob.l][];
-        for (int i = 0; i < prob.l; i++) {
-            prob.x[i] = vx.get(i);
-
-            if (bias >= 0) {
-                assert prob.x[i][prob.x[i].length - 1] == null;
-                prob.x[i][prob.x[i].length - 1] = new FeatureNode(max_index + 1, bias);
-            }
-        }
-
-        prob.y = new double[prob.l];
-        for (int i = 0; i < prob.l; i++)
-            prob.y[i] = vy.get(i).doubleValue();
-
-        return prob;
-    }
-
     private void run(String[] args) throws IOException, InvalidInputDataException {
         parse_command_line(args);
-        readProblem(inputFilename);
+        if (cacheFilename != null)
+            readProblem(Paths.get(inputFilename), Paths.get(cacheFilename));
+        else
+            prob = readCompactProblem(Paths.get(inputFilename), bias);
         if (find_parameters) {
             do_find_parameters();
         } else if (cross_validation)
@@ -469,4 +431,8 @@ public class Train {
     int getNumFolds() {
         return nr_fold;
     }
+
+    String getCacheFilename() {
+        return cacheFilename;
+    }
 }
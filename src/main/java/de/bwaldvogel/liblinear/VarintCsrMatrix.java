@@ -0,0 +1,240 @@
+package de.bwaldvogel.liblinear;
+
+/**
+ * <p>Compressed sparse row (CSR) storage like {@link CsrMatrix}, but the feature indices of each row are
+ * stored as gaps to the previous index in a variable-length byte encoding (varint): 7 bits per byte,
+ * with the highest bit set if more bytes follow. Since the indices are sorted, most gaps fit into
+ * one or two bytes instead of four, which reduces the memory (and memory bandwidth) of the solvers.
+ * The kernels decode the indices on the fly.</p>
+ *
+ * For example, the indices 2 3 6 200 of a row are stored as
+ * <pre>
+ *  gaps        -&gt; 2    1    3    194
+ *  indexBytes  -&gt; 0x02 0x01 0x03 0xc2 0x01
+ * </pre>
+ *
+ * <p>Note: {@link #getIndex(int, int)} needs to decode the row up to the k-th entry; {@link #getIndices(int, int[])}
+ * decodes the whole row at once.</p>
+ *
+ * @see Problem#matrix
+ */
+public final class VarintCsrMatrix extends FeatureMatrix {
+
+    final int[]    rowPtr;
+    final int[]    bytePtr;
+    final byte[]   indexBytes;
+    final double[] values;
+
+    VarintCsrMatrix(int[] rowPtr, int[] bytePtr, byte[] indexBytes, double[] values) {
+        this.rowPtr = rowPtr;
+        this.bytePtr = bytePtr;
+        this.indexBytes = indexBytes;
+        this.values = values;
+    }
+
+    /**
+     * Converts the feature nodes to varint compressed CSR storage.
+     */
+    public static VarintCsrMatrix fromFeatures(Feature[][] x) {
+        return copyOf(new FeatureArrayMatrix(x));
+    }
+
+    /**
+     * Converts the feature vectors to varint compressed CSR storage.
+     *
+     * @throws IllegalArgumentException if the indices of a row are not sorted in ascending order
+     */
+    public static VarintCsrMatrix copyOf(FeatureMatrix matrix) {
+        int l = matrix.getNumRows();
+        int[] rowPtr = new int[l + 1];
+        int[] bytePtr = new int[l + 1];
+        long numBytes = 0;
+        int[] rowIndices = null;
+        for (int i = 0; i < l; i++) {
+            int length = matrix.getRowLength(i);
+            rowPtr[i + 1] = rowPtr[i] + length;
+            rowIndices = matrix.getIndices(i, rowIndices);
+            int indexBefore = 0;
+            for (int k = 0; k < length; k++) {
+                int index = rowIndices[k];
+                if (index <= indexBefore)
+                    throw new IllegalArgumentException("indices must be sorted in ascending order");
+                numBytes += encodedLength(index - indexBefore);
+                indexBefore = index;
+            }
+            if (numBytes > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("too many features to encode the indices");
+            bytePtr[i + 1] = (int)numBytes;
+        }
+
+        byte[] indexBytes = new byte[(int)numBytes];
+        double[] values = new double[rowPtr[l]];
+        int pos = 0;
+        int k = 0;
+        for (int i = 0; i < l; i++) {
+            int length = matrix.getRowLength(i);
+            rowIndices = matrix.getIndices(i, rowIndices);
+            int indexBefore = 0;
+            for (int j = 0; j < length; j++) {
+                int index = rowIndices[j];
+                pos = encode(index - indexBefore, indexBytes, pos);
+                indexBefore = index;
+                values[k++] = matrix.getValue(i, j);
+            }
+        }
+        return new VarintCsrMatrix(rowPtr, bytePtr, indexBytes, values);
+    }
+
+    static int encodedLength(int gap) {
+        int length = 1;
+        while ((gap >>>= 7) != 0)
+            length++;
+        return length;
+    }
+
+    static int encode(int gap, byte[] target, int pos) {
+        while ((gap & ~0x7f) != 0) {
+            target[pos++] = (byte)((gap & 0x7f) | 0x80);
+            gap >>>= 7;
+        }
+        target[pos++] = (byte)gap;
+        return pos;
+    }
+
+    /**
+     * @return the total number of stored (non-zero) features
+     */
+    public int getNumNonZeros() {
+        return rowPtr[rowPtr.length - 1];
+    }
+
+    /**
+     * @return the number of bytes of the encoded feature indices
+     */
+    public int getNumIndexBytes() {
+        return bytePtr[bytePtr.length - 1];
+    }
+
+    @Override
+    public int getNumRows() {
+        return rowPtr.length - 1;
+    }
+
+    @Override
+    public int getRowLength(int row) {
+        return rowPtr[row + 1] - rowPtr[row];
+    }
+
+    @Override
+    public int getIndex(int row, int k) {
+        int index = 0;
+        int pos = bytePtr[row];
+        for (int j = 0; j <= k; j++) {
+            int b = indexBytes[pos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[pos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+        }
+        return index;
+    }
+
+    @Override
+    public int[] getIndices(int row, int[] buffer) {
+        int length = getRowLength(row);
+        if (buffer == null || buffer.length < length)
+            buffer = new int[length];
+        int index = 0;
+        int pos = bytePtr[row];
+        for (int k = 0; k < length; k++) {
+            int b = indexBytes[pos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[pos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+            buffer[k] = index;
+        }
+        return buffer;
+    }
+
+    @Override
+    public double getValue(int row, int k) {
+        return values[rowPtr[row] + k];
+    }
+
+    @Override
+    double nrm2_sq(int row) {
+        return SparseOperator.nrm2_sq(values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    double dot(int row, double[] s) {
+        return SparseOperator.dot(s, indexBytes, bytePtr[row], values, rowPtr[row], rowPtr[row + 1]);
+    }
+
+    @Override
+    void axpy(double a, int row, double[] y) {
+        SparseOperator.axpy(a, indexBytes, bytePtr[row], values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    void atomic_axpy(double a, int row, double[] y) {
+        SparseOperator.atomic_axpy(a, indexBytes, bytePtr[row], values, rowPtr[row], rowPtr[row + 1], y);
+    }
+
+    @Override
+    double sparse_dot(int row1, int row2) {
+        return SparseOperator.sparse_dot(indexBytes, values, bytePtr[row1], rowPtr[row1], rowPtr[row1 + 1], bytePtr[row2], rowPtr[row2],
+            rowPtr[row2 + 1]);
+    }
+
+    @Override
+    void addDecisionValues(int row, double[] w, int n, int nr_w, double[] dec_values) {
+        int index = 0;
+        int pos = bytePtr[row];
+        for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+            int b = indexBytes[pos++];
+            int gap = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = indexBytes[pos++];
+                gap |= (b & 0x7f) << shift;
+            }
+            index += gap;
+            // the indices are sorted, so the remaining features exceed the dimension of the training data as well
+            if (index > n)
+                break;
+            double value = values[k];
+            for (int i = 0; i < nr_w; i++) {
+                dec_values[i] += w[(index - 1) * nr_w + i] * value;
+            }
+        }
+    }
+
+    @Override
+    VarintCsrMatrix select(int[] rows) {
+        int[] newRowPtr = new int[rows.length + 1];
+        int[] newBytePtr = new int[rows.length + 1];
+        long numBytes = 0;
+        for (int i = 0; i < rows.length; i++) {
+            newRowPtr[i + 1] = newRowPtr[i] + getRowLength(rows[i]);
+            numBytes += bytePtr[rows[i] + 1] - bytePtr[rows[i]];
+            if (numBytes > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("too many features to encode the indices");
+            newBytePtr[i + 1] = (int)numBytes;
+        }
+
+        byte[] newIndexBytes = new byte[(int)numBytes];
+        double[] newValues = new double[newRowPtr[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            System.arraycopy(indexBytes, bytePtr[row], newIndexBytes, newBytePtr[i], newBytePtr[i + 1] - newBytePtr[i]);
+            System.arraycopy(values, rowPtr[row], newValues, newRowPtr[i], newRowPtr[i + 1] - newRowPtr[i]);
+        }
+        return new VarintCsrMatrix(newRowPtr, newBytePtr, newIndexBytes, newValues);
+    }
+
+}
@@ -0,0 +1,132 @@
+package de.bwaldvogel.liblinear;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * <p>Kernels of dense vectors that use the incubating Vector API (Java 17 and later).
+ * The class is loaded by {@link DenseKernels} if the module {@code jdk.incubator.vector} is available.</p>
+ *
+ * <p>The element-wise kernels perform the same operations as the scalar loops, so their results are identical.
+ * {@link #dot} and {@link #nrm2} accumulate one partial sum per lane, which are added at the end.</p>
+ *
+ * <p>The sparse axpy gathers the elements of y with the (one-based) feature indices of a row and scatters them back,
+ * which is only correct because the indices of a row are distinct.</p>
+ */
+final class VectorKernels extends DenseKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    double dot(int from, int to, double[] x, double[] y) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            sum = sum.add(vx.mul(vy));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++)
+            result += x[i] * y[i];
+        return result;
+    }
+
+    /**
+     * scales the elements by their largest absolute value like the reference implementation, so that the squares
+     * neither overflow nor underflow
+     */
+    @Override
+    double nrm2(int n, double[] x) {
+        int upperBound = SPECIES.loopBound(n);
+        DoubleVector max = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length())
+            max = max.max(DoubleVector.fromArray(SPECIES, x, i).abs());
+        double scale = max.reduceLanes(VectorOperators.MAX);
+        for (; i < n; i++)
+            scale = Math.max(scale, Math.abs(x[i]));
+
+        // 1 / scale would overflow for subnormal values
+        if (scale < Double.MIN_NORMAL || !Double.isFinite(scale))
+            return super.nrm2(n, x);
+
+        double inverse = 1 / scale;
+        DoubleVector ssq = DoubleVector.zero(SPECIES);
+        for (i = 0; i < upperBound; i += SPECIES.length()) {
+            DoubleVector scaled = DoubleVector.fromArray(SPECIES, x, i).mul(inverse);
+            ssq = ssq.add(scaled.mul(scaled));
+        }
+        double result = ssq.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            double scaled = x[i] * inverse;
+            result += scaled * scaled;
+        }
+        return scale * Math.sqrt(result);
+    }
+
+    @Override
+    void axpy(int from, int to, double a, double[] x, double[] y) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            vy.add(DoubleVector.fromArray(SPECIES, x, i).mul(a)).intoArray(y, i);
+        }
+        for (; i < to; i++)
+            y[i] += a * x[i];
+    }
+
+    @Override
+    void axpy(double a, int[] indices, double[] values, int from, int to, double[] y) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int k = from;
+        for (; k < upperBound; k += SPECIES.length()) {
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, -1, indices, k);
+            vy.add(DoubleVector.fromArray(SPECIES, values, k).mul(a)).intoArray(y, -1, indices, k);
+        }
+        for (; k < to; k++)
+            y[indices[k] - 1] += a * values[k];
+    }
+
+    @Override
+    void scal(int from, int to, double a, double[] x) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upperBound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, x, i).mul(a).intoArray(x, i);
+        for (; i < to; i++)
+            x[i] = a * x[i];
+    }
+
+    @Override
+    void affine(int from, int to, double a, double b, double[] x) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upperBound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, x, i).mul(b).add(a).intoArray(x, i);
+        for (; i < to; i++)
+            x[i] = a + b * x[i];
+    }
+
+    @Override
+    void divide(int from, int to, double[] x, double[] y, double[] z) {
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            vx.div(DoubleVector.fromArray(SPECIES, y, i)).intoArray(z, i);
+        }
+        for (; i < to; i++)
+            z[i] = x[i] / y[i];
+    }
+
+}
@@ -0,0 +1,72 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class BinaryProblemFileTest {
+
+    @Test
+    void testWriteAndRead(@TempDir Path tempDir) throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+        Path file = tempDir.resolve("iris.bin");
+        prob.writeBinaryFile(file);
+
+        BinaryProblemFile.Header header = BinaryProblemFile.readHeader(file);
+        assertThat(header.l).isEqualTo(prob.l);
+        assertThat(header.n).isEqualTo(prob.n);
+        assertThat(header.bias).isEqualTo(1);
+        assertThat(header.nnz).isEqualTo(CsrMatrix.fromFeatures(prob.x).getNumNonZeros());
+
+        Problem read = Problem.readBinaryFile(file);
+
+        CsrMatrix expected = CsrMatrix.fromFeatures(prob.x);
+        assertThat(read.l).isEqualTo(prob.l);
+        assertThat(read.n).isEqualTo(prob.n);
+        assertThat(read.bias).isEqualTo(prob.bias);
+        assertThat(read.y).isEqualTo(prob.y);
+        assertThat(read.matrix).isInstanceOf(CsrMatrix.class);
+        assertThat(((CsrMatrix)read.matrix).rowPtr).isEqualTo(expected.rowPtr);
+        assertThat(((CsrMatrix)read.matrix).indices).isEqualTo(expected.indices);
+        assertThat(((CsrMatrix)read.matrix).values).isEqualTo(expected.values);
+    }
+
+    @Test
+    void testWriteAndReadIndicatorProblem(@TempDir Path tempDir) throws Exception {
+        Problem prob = new Problem();
+        prob.l = 3;
+        prob.n = 5;
+        prob.bias = 1;
+        prob.y = new double[] {1, 2, 1};
+        prob.matrix = new IndicatorCsrMatrix(new int[] {0, 2, 3, 5}, new int[] {1, 5, 5, 2, 5});
+        Path file = tempDir.resolve("indicator.bin");
+        prob.writeBinaryFile(file);
+
+        Problem read = Problem.readBinaryFile(file);
+        assertThat(read.y).isEqualTo(prob.y);
+        assertThat(read.matrix).isInstanceOf(IndicatorCsrMatrix.class);
+        assertThat(((IndicatorCsrMatrix)read.matrix).rowPtr).containsExactly(0, 2, 3, 5);
+        assertThat(((IndicatorCsrMatrix)read.matrix).indices).containsExactly(1, 5, 5, 2, 5);
+    }
+
+    @Test
+    void testWriteAndReadEmptyProblem(@TempDir Path tempDir) throws Exception {
+        Problem prob = new Problem();
+        prob.l = 0;
+        prob.n = 0;
+        prob.y = new double[0];
+        prob.x = new Feature[0][];
+        Path file = tempDir.resolve("empty.bin");
+        prob.writeBinaryFile(file);
+
+        Problem read = Problem.readBinaryFile(file);
+        assertThat(read.l).isZero();
+        assertThat(read.matrix.getNumRows()).isZero();
+    }
+
+}
@@ -0,0 +1,96 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+
+class CsrMatrixTest {
+
+    @Test
+    void testFromFeatures() throws Exception {
+        Feature[][] x = new Feature[][] {
+            {new FeatureNode(2, 0.1), new FeatureNode(3, 0.2), new FeatureNode(6, 1)},
+            {},
+            {new FeatureNode(1, 0.4), new FeatureNode(6, 1)},
+        };
+
+        CsrMatrix matrix = CsrMatrix.fromFeatures(x);
+
+        assertThat(matrix.getNumRows()).isEqualTo(3);
+        assertThat(matrix.getNumNonZeros()).isEqualTo(5);
+        assertThat(matrix.rowPtr).containsExactly(0, 3, 3, 5);
+        assertThat(matrix.indices).containsExactly(2, 3, 6, 1, 6);
+        assertThat(matrix.values).containsExactly(0.1, 0.2, 1, 0.4, 1);
+
+        assertThat(matrix.getRowLength(0)).isEqualTo(3);
+        assertThat(matrix.getRowLength(1)).isZero();
+        assertThat(matrix.getIndex(2, 1)).isEqualTo(6);
+        assertThat(matrix.getValue(2, 0)).isEqualTo(0.4);
+    }
+
+    @Test
+    void testKernels() throws Exception {
+        CsrMatrix matrix = new CsrMatrix(new int[] {0, 2, 3}, new int[] {1, 3, 2}, new double[] {2.0, 3.0, 4.0});
+
+        assertThat(matrix.nrm2_sq(0)).isEqualTo(2.0 * 2.0 + 3.0 * 3.0);
+        assertThat(matrix.dot(0, new double[] {1.0, 5.0, 2.0})).isEqualTo(2.0 + 3.0 * 2.0);
+        assertThat(matrix.sparse_dot(0, 1)).isZero();
+        assertThat(matrix.sparse_dot(0, 0)).isEqualTo(matrix.nrm2_sq(0));
+
+        double[] y = new double[] {1.0, 1.0, 1.0};
+        matrix.axpy(0.5, 1, y);
+        assertThat(y).containsExactly(1.0, 3.0, 1.0);
+        matrix.atomic_axpy(0.5, 1, y);
+        assertThat(y).containsExactly(1.0, 5.0, 1.0);
+    }
+
+    @Test
+    void testSelect() throws Exception {
+        CsrMatrix matrix = new CsrMatrix(new int[] {0, 2, 3, 3}, new int[] {1, 3, 2}, new double[] {2.0, 3.0, 4.0});
+
+        CsrMatrix selected = matrix.select(new int[] {1, 0, 1, 2});
+
+        assertThat(selected.rowPtr).containsExactly(0, 1, 3, 4, 4);
+        assertThat(selected.indices).containsExactly(2, 1, 3, 2);
+        assertThat(selected.values).containsExactly(4.0, 2.0, 3.0, 4.0);
+    }
+
+    @Test
+    void testView() throws Exception {
+        CsrMatrix matrix = new CsrMatrix(new int[] {0, 2, 3, 3}, new int[] {1, 3, 2}, new double[] {2.0, 3.0, 4.0});
+
+        FeatureMatrix view = matrix.view(new int[] {2, 0, 1}).view(new int[] {1, 2});
+
+        assertThat(view.getNumRows()).isEqualTo(2);
+        assertThat(view.getRowLength(0)).isEqualTo(2);
+        assertThat(view.getIndex(0, 1)).isEqualTo(3);
+        assertThat(view.getValue(1, 0)).isEqualTo(4.0);
+        assertThat(view.nrm2_sq(0)).isEqualTo(matrix.nrm2_sq(0));
+        assertThat(view.sparse_dot(0, 1)).isEqualTo(matrix.sparse_dot(0, 1));
+
+        // the view refers to the arrays of the matrix
+        matrix.values[2] = 5.0;
+        assertThat(view.getValue(1, 0)).isEqualTo(5.0);
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new CsrMatrix(new int[0], new int[0], new double[0]))
+            .withMessage("rowPtr must not be empty");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new CsrMatrix(new int[] {1, 2}, new int[2], new double[2]))
+            .withMessage("rowPtr must start with 0");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new CsrMatrix(new int[] {0, 2, 1}, new int[2], new double[2]))
+            .withMessage("rowPtr must not be decreasing");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new CsrMatrix(new int[] {0, 2}, new int[2], new double[1]))
+            .withMessage("indices and values must contain at least 2 elements");
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * compares {@link DenseKernels#INSTANCE}, which uses the Vector API if the tests run on Java 17 or later, with the scalar kernels
+ */
+class DenseKernelsTest {
+
+    private static final int[] SIZES = {0, 1, 3, 7, 8, 9, 100, 1001};
+
+    @Test
+    void testElementWiseKernelsAreIdentical() throws Exception {
+        Random random = new Random(12345);
+        for (int n : SIZES) {
+            double[] x = randomVector(random, n, 1);
+            double[] y = randomVector(random, n, 1);
+
+            double[] expected = y.clone();
+            double[] actual = y.clone();
+            DenseKernels.SCALAR.axpy(n, 0.3, x, expected);
+            DenseKernels.INSTANCE.axpy(n, 0.3, x, actual);
+            assertThat(actual).containsExactly(expected);
+
+            expected = x.clone();
+            actual = x.clone();
+            DenseKernels.SCALAR.scal(n, 1.7, expected);
+            DenseKernels.INSTANCE.scal(n, 1.7, actual);
+            assertThat(actual).containsExactly(expected);
+
+            expected = x.clone();
+            actual = x.clone();
+            DenseKernels.SCALAR.affine(n, 0.99, 0.01, expected);
+            DenseKernels.INSTANCE.affine(n, 0.99, 0.01, actual);
+            assertThat(actual).containsExactly(expected);
+
+            expected = new double[n];
+            actual = new double[n];
+            DenseKernels.SCALAR.divide(n, x, y, expected);
+            DenseKernels.INSTANCE.divide(n, x, y, actual);
+            assertThat(actual).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void testSums() throws Exception {
+        Random random = new Random(12345);
+        for (int n : SIZES) {
+            // large values would overflow if nrm2 squared them without scaling
+            double[] x = randomVector(random, n, 1e200);
+            double[] y = randomVector(random, n, 1e-100);
+
+            // the error of a sum in a different order is bounded relative to the sum of the absolute values
+            double sumOfAbsoluteValues = 0;
+            for (int i = 0; i < n; i++)
+                sumOfAbsoluteValues += Math.abs(x[i] * y[i]);
+            double dot = DenseKernels.SCALAR.dot(n, x, y);
+            assertThat(DenseKernels.INSTANCE.dot(n, x, y)).isCloseTo(dot, within(1e-12 * sumOfAbsoluteValues));
+
+            double norm = DenseKernels.SCALAR.nrm2(n, x);
+            assertThat(norm).isFinite();
+            assertThat(DenseKernels.INSTANCE.nrm2(n, x)).isCloseTo(norm, within(1e-12 * norm));
+
+            // the inverse of a subnormal value overflows
+            if (n > 0) {
+                double[] subnormal = new double[n];
+                subnormal[0] = 1e-310;
+                assertThat(DenseKernels.SCALAR.nrm2(n, subnormal)).isEqualTo(1e-310);
+                assertThat(DenseKernels.INSTANCE.nrm2(n, subnormal)).isEqualTo(1e-310);
+            }
+        }
+    }
+
+    @Test
+    void testSparseAxpy() throws Exception {
+        Random random = new Random(12345);
+        double[] s = randomVector(random, 3000, 1);
+        for (int n : SIZES) {
+            // distinct one-based indices in increasing order, starting with the first element of s
+            int[] indices = new int[n];
+            for (int k = 0; k < n; k++)
+                indices[k] = 1 + k * 2 + random.nextInt(2);
+            if (n > 0)
+                indices[0] = 1;
+            double[] values = randomVector(random, n, 1);
+
+            double[] expected = s.clone();
+            double[] actual = s.clone();
+            DenseKernels.SCALAR.axpy(0.3, indices, values, 0, n, expected);
+            DenseKernels.INSTANCE.axpy(0.3, indices, values, 0, n, actual);
+            assertThat(actual).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void testBlasUsesKernels() throws Exception {
+        double[] x = {3, 4};
+        assertThat(Blas.dnrm2_(2, x, new MutableInt(1))).isEqualTo(5.0);
+        assertThat(Blas.ddot_(2, x, 1, x, 1)).isEqualTo(25.0);
+
+        double[] y = {1, 1};
+        Blas.daxpy_(2, 2, x, 1, y, 1);
+        assertThat(y).containsExactly(7, 9);
+        Blas.dscal_(2, 0.5, y, 1);
+        assertThat(y).containsExactly(3.5, 4.5);
+    }
+
+    private static double[] randomVector(Random random, int n, double scale) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++)
+            x[i] = random.nextGaussian() * scale;
+        return x;
+    }
+
+}
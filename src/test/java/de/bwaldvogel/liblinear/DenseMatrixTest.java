@@ -0,0 +1,65 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+class DenseMatrixTest {
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    @Test
+    void testFromFeatures() throws Exception {
+        Feature[][] x = new Feature[][] {
+            {new FeatureNode(2, 0.1), new FeatureNode(3, 0.2)},
+            {},
+            {new FeatureNode(1, 0.4), new FeatureNode(3, 1), new FeatureNode(5, 7)},
+        };
+
+        DenseMatrix matrix = DenseMatrix.fromFeatures(x, 3);
+
+        assertThat(matrix.getNumRows()).isEqualTo(3);
+        assertThat(matrix.getNumColumns()).isEqualTo(3);
+        // the feature with index 5 is ignored
+        assertThat(matrix.data).containsExactly(0, 0.1, 0.2, 0, 0, 0, 0.4, 0, 1);
+        assertThat(matrix.getRowLength(1)).isEqualTo(3);
+        assertThat(matrix.getIndex(2, 1)).isEqualTo(2);
+        assertThat(matrix.getValue(2, 2)).isEqualTo(1);
+    }
+
+    @Test
+    void testKernels() throws Exception {
+        DenseMatrix matrix = new DenseMatrix(2, 3, new double[] {1.0, 0.0, 3.0, 2.0, 4.0, -1.0});
+
+        assertThat(matrix.nrm2_sq(0)).isEqualTo(1.0 + 3.0 * 3.0);
+        assertThat(matrix.dot(1, new double[] {1.0, 0.5, 2.0})).isEqualTo(2.0 + 2.0 - 2.0);
+        assertThat(matrix.sparse_dot(0, 1)).isEqualTo(2.0 - 3.0);
+
+        double[] y = new double[] {1.0, 1.0, 1.0};
+        matrix.axpy(0.5, 1, y);
+        assertThat(y).containsExactly(2.0, 3.0, 0.5);
+        matrix.atomic_axpy(0.5, 1, y);
+        assertThat(y).containsExactly(3.0, 5.0, 0.0);
+
+        DenseMatrix selected = matrix.select(new int[] {1, 1, 0});
+        assertThat(selected.getNumRows()).isEqualTo(3);
+        assertThat(selected.data).containsExactly(2.0, 4.0, -1.0, 2.0, 4.0, -1.0, 1.0, 0.0, 3.0);
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new DenseMatrix(2, 3, new double[5]))
+            .withMessage("data must contain at least 6 elements");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new DenseMatrix(-1, 3, new double[0]))
+            .withMessage("numRows and numColumns must not be negative");
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.bwaldvogel.liblinear;
+
+import static de.bwaldvogel.liblinear.TestUtils.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Paths;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+class FloatCsrMatrixTest {
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    @Test
+    void testFromFeatures() throws Exception {
+        Feature[][] x = new Feature[][] {
+            {new FeatureNode(2, 0.1), new FeatureNode(3, 0.2), new FeatureNode(6, 1)},
+            {},
+            {new FeatureNode(1, 0.4), new FeatureNode(6, 1)},
+        };
+
+        FloatCsrMatrix matrix = FloatCsrMatrix.fromFeatures(x);
+
+        assertThat(matrix.getNumRows()).isEqualTo(3);
+        assertThat(matrix.getNumNonZeros()).isEqualTo(5);
+        assertThat(matrix.rowPtr).containsExactly(0, 3, 3, 5);
+        assertThat(matrix.indices).containsExactly(2, 3, 6, 1, 6);
+        assertThat(matrix.values).containsExactly(0.1f, 0.2f, 1f, 0.4f, 1f);
+        assertThat(matrix.getValue(2, 0)).isEqualTo(0.4f);
+    }
+
+    @Test
+    void testKernels() throws Exception {
+        FloatCsrMatrix matrix = new FloatCsrMatrix(new int[] {0, 2, 3}, new int[] {1, 3, 2}, new float[] {2f, 3f, 4f});
+
+        assertThat(matrix.nrm2_sq(0)).isEqualTo(2.0 * 2.0 + 3.0 * 3.0);
+        assertThat(matrix.dot(0, new double[] {1.0, 5.0, 2.0})).isEqualTo(2.0 + 3.0 * 2.0);
+        assertThat(matrix.sparse_dot(0, 0)).isEqualTo(matrix.nrm2_sq(0));
+
+        double[] y = new double[] {1.0, 1.0, 1.0};
+        matrix.axpy(0.5, 1, y);
+        assertThat(y).containsExactly(1.0, 3.0, 1.0);
+        matrix.atomic_axpy(0.5, 1, y);
+        assertThat(y).containsExactly(1.0, 5.0, 1.0);
+
+        FloatCsrMatrix selected = matrix.select(new int[] {1, 0});
+        assertThat(selected.rowPtr).containsExactly(0, 1, 3);
+        assertThat(selected.values).containsExactly(4f, 2f, 3f);
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new FloatCsrMatrix(new int[] {0, 2}, new int[2], null))
+            .withMessage("indices and values must not be null");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new FloatCsrMatrix(new int[] {0, 2}, new int[1], new float[2]))
+            .withMessage("indices and values must contain at least 2 elements");
+    }
+
+    /**
+     * the values of iris.scale are not exactly representable as float,
+     * so the models differ slightly from the double-precision models
+     */
+    @Test
+    void testAccuracyDrift() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+
+        Problem floatProb = withMatrix(prob, FloatCsrMatrix.fromFeatures(prob.x));
+
+        for (SolverType solver : SolverType.values()) {
+            if (solver.isOneClass()) {
+                continue;
+            }
+            Model expected = Linear.train(prob, new Parameter(solver, 1, 0.1));
+            Model model = Linear.train(floatProb, new Parameter(solver, 1, 0.1));
+
+            for (int i = 0; i < prob.l; i++) {
+                double[] expectedValues = new double[expected.getNrClass()];
+                double[] values = new double[model.getNrClass()];
+                double expectedPrediction = Linear.predictValues(expected, prob.x[i], expectedValues);
+                double prediction = Linear.predictValues(model, prob.x[i], values);
+                if (!solver.isSupportVectorRegression()) {
+                    assertThat(prediction).as("prediction of " + solver).isEqualTo(expectedPrediction);
+                }
+                for (int k = 0; k < values.length; k++) {
+                    assertThat(values[k]).as("decision value of " + solver).isEqualTo(expectedValues[k], Offset.offset(1e-5));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+class IndicatorCsrMatrixTest {
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    @Test
+    void testCopyOf() throws Exception {
+        CsrMatrix expected = new CsrMatrix(new int[] {0, 3, 3, 5}, new int[] {2, 3, 6, 1, 6}, new double[] {1, 1, 1, 1, 1});
+
+        IndicatorCsrMatrix matrix = IndicatorCsrMatrix.copyOf(expected);
+
+        assertThat(matrix.getNumRows()).isEqualTo(3);
+        assertThat(matrix.getNumNonZeros()).isEqualTo(5);
+        assertThat(matrix.rowPtr).containsExactly(0, 3, 3, 5);
+        assertThat(matrix.indices).containsExactly(2, 3, 6, 1, 6);
+        assertThat(matrix.getIndex(2, 1)).isEqualTo(6);
+        assertThat(matrix.getValue(2, 1)).isEqualTo(1);
+    }
+
+    @Test
+    void testKernels() throws Exception {
+        CsrMatrix expected = new CsrMatrix(new int[] {0, 2, 5, 5}, new int[] {1, 3, 1, 2, 3}, new double[] {1, 1, 1, 1, 1});
+        IndicatorCsrMatrix matrix = IndicatorCsrMatrix.copyOf(expected);
+
+        double[] s = new double[] {0.5, 2.0, -1.5};
+        for (int row = 0; row < 3; row++) {
+            assertThat(matrix.nrm2_sq(row)).isEqualTo(expected.nrm2_sq(row));
+            assertThat(matrix.dot(row, s)).isEqualTo(expected.dot(row, s));
+            for (int row2 = 0; row2 < 3; row2++) {
+                assertThat(matrix.sparse_dot(row, row2)).isEqualTo(expected.sparse_dot(row, row2));
+            }
+
+            double[] y = new double[] {1.0, 1.0, 1.0};
+            double[] expectedY = new double[] {1.0, 1.0, 1.0};
+            matrix.axpy(0.25, row, y);
+            expected.axpy(0.25, row, expectedY);
+            assertThat(y).containsExactly(expectedY);
+            matrix.atomic_axpy(0.25, row, y);
+            expected.axpy(0.25, row, expectedY);
+            assertThat(y).containsExactly(expectedY);
+        }
+        assertThat(matrix.sparse_dot(0, 1)).isEqualTo(2);
+
+        IndicatorCsrMatrix selected = matrix.select(new int[] {1, 0});
+        assertThat(selected.rowPtr).containsExactly(0, 3, 5);
+        assertThat(selected.indices).containsExactly(1, 2, 3, 1, 3);
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new IndicatorCsrMatrix(new int[] {0, 2}, null))
+            .withMessage("indices must not be null");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> IndicatorCsrMatrix.copyOf(new CsrMatrix(new int[] {0, 2}, new int[] {1, 2}, new double[] {1, 0.5})))
+            .withMessage("feature value must be 1 but was 0.5");
+    }
+
+}
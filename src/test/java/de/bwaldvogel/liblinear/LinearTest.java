@@ -17,6 +17,8 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.BeforeEach;
@@ -88,6 +90,31 @@ class LinearTest {
         return prob;
     }
 
+    /**
+     * @return a reproducible problem with the labels 0 to numClasses-1 (in turn) and a bias feature. Each of the features
+     *         1 to numFeatures is set with the given probability; its value depends on the class.
+     */
+    private static Problem createLargeProblem(int numInstances, int numClasses, int numFeatures, double density) {
+        Random rnd = new Random(42);
+        ProblemBuilder builder = new ProblemBuilder();
+        for (int i = 0; i < numInstances; i++) {
+            int label = i % numClasses;
+            ProblemBuilder.Row row = builder.beginRow(label);
+            for (int index = 1; index <= numFeatures; index++) {
+                if (rnd.nextDouble() < density)
+                    row.add(index, rnd.nextGaussian() + 0.5 * label * (index % 3));
+            }
+            row.end();
+        }
+        return builder.build(1);
+    }
+
+    private static Parameter createParameterWithThreads(SolverType solver, double eps, int numThreads) {
+        Parameter param = new Parameter(solver, 1, eps);
+        param.setNumThreads(numThreads);
+        return param;
+    }
+
     /**
      * create a very simple problem and check if the clearly separated examples are recognized as such
      */
@@ -167,6 +194,162 @@ class LinearTest {
         }
     }
 
+    @Test
+    void testTrainCsrMatrixUnsorted() throws Exception {
+        Problem prob = new Problem();
+        prob.l = 2;
+        prob.n = 3;
+        prob.y = new double[] {0, 1};
+        prob.matrix = new CsrMatrix(new int[] {0, 2, 3}, new int[] {3, 1, 2}, new double[] {1, 1, 1});
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> Linear.train(prob, new Parameter(L2R_LR, 10, 0.1)))
+            .withMessageContainingAll("sorted", "ascending", "order");
+    }
+
+    @Test
+    void testTrainClassesInParallel() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+
+        for (SolverType solver : SolverType.values()) {
+            if (solver == MCSVM_CS || solver.isSupportVectorRegression() || solver.isOneClass()) {
+                continue;
+            }
+            Parameter sequentialParam = new Parameter(solver, 1, 0.1);
+            Model sequential = Linear.train(prob, sequentialParam);
+
+            for (int numThreads : new int[] {2, 3, 8}) {
+                Parameter param = new Parameter(solver, 1, 0.1);
+                param.setNumThreads(numThreads);
+                Model model = Linear.train(prob, param);
+                assertThat(model).as("model of " + solver + " with " + numThreads + " threads").isEqualTo(sequential);
+            }
+        }
+    }
+
+    @Test
+    void testTrainLargeClassesInParallel() throws Exception {
+        // large enough that a solver with several threads would split its passes into chunks
+        Problem prob = createLargeProblem(5000, 3, 20, 0.25);
+
+        for (SolverType solver : new SolverType[] {L2R_LR, L2R_L2LOSS_SVC, L2R_L2LOSS_SVC_DUAL, L1R_LR}) {
+            Model sequential = Linear.train(prob, new Parameter(solver, 1, 0.01));
+            for (int numThreads : new int[] {2, 4}) {
+                Model model = Linear.train(prob, createParameterWithThreads(solver, 0.01, numThreads));
+                assertThat(model).as("model of " + solver + " with " + numThreads + " threads").isEqualTo(sequential);
+            }
+        }
+    }
+
+    @Test
+    void testTrainWithForkJoinPool() throws Exception {
+        AtomicInteger workers = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2, p -> {
+            workers.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        }, null, false);
+        try {
+            Problem prob = createRandomProblem(3);
+            Parameter param = new Parameter(L2R_LR, 1, 0.01);
+            param.setNumThreads(4);
+            Model expected = Linear.train(prob, param);
+            double[] expectedTarget = new double[prob.l];
+            Linear.crossValidation(prob, param, 2, expectedTarget);
+
+            // a fresh random generator, since the cross validation draws from it
+            param = new Parameter(L2R_LR, 1, 0.01);
+            param.setNumThreads(4);
+            param.setForkJoinPool(pool);
+            assertThat(Linear.train(prob, param)).isEqualTo(expected);
+            double[] target = new double[prob.l];
+            Linear.crossValidation(prob, param, 2, target);
+            assertThat(target).containsExactly(expectedTarget);
+            assertThat(workers.get()).isPositive();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTrainNewtonSolversWithThreads() throws Exception {
+        Problem prob = createLargeProblem(5000, 2, 20, 0.25);
+
+        for (SolverType solver : EnumSet.of(L2R_LR, L2R_L2LOSS_SVC, L2R_L2LOSS_SVR)) {
+            Model sequential = Linear.train(prob, new Parameter(solver, 1, 0.001));
+
+            Parameter param = createParameterWithThreads(solver, 0.001, 4);
+            Model model = Linear.train(prob, param);
+            // the partial sums of the threads are added in a fixed order
+            assertThat(Linear.train(prob, param)).isEqualTo(model);
+
+            double[] expectedWeights = sequential.getFeatureWeights();
+            double[] weights = model.getFeatureWeights();
+            for (int i = 0; i < weights.length; i++) {
+                assertThat(weights[i]).as("weight of " + solver).isEqualTo(expectedWeights[i], Offset.offset(1e-10));
+            }
+        }
+    }
+
+    @Test
+    void testTrainNewtonSolversWithThreadsAndManyFeatures() throws Exception {
+        // more features than one block of the conjugate gradient iterations
+        Problem prob = createLargeProblem(400, 2, 2 * Newton.BLOCK_SIZE + 100, 0.01);
+
+        for (SolverType solver : EnumSet.of(L2R_LR, L2R_L2LOSS_SVC)) {
+            Model sequential = Linear.train(prob, new Parameter(solver, 1, 0.001));
+            for (int numThreads : new int[] {2, 4}) {
+                Parameter param = createParameterWithThreads(solver, 0.001, numThreads);
+                // the sums of the blocks are added in block order, independent of the number of threads
+                assertThat(Linear.train(prob, param)).as("model of " + solver + " with " + numThreads + " threads").isEqualTo(sequential);
+            }
+        }
+    }
+
+    @Test
+    void testTrainL1SolversWithThreads() throws Exception {
+        // long columns, so that the columns and the instances are split between the threads
+        Problem prob = createLargeProblem(20000, 2, 10, 1);
+
+        for (SolverType solver : EnumSet.of(L1R_LR, L1R_L2LOSS_SVC)) {
+            Model sequential = Linear.train(prob, new Parameter(solver, 1, 0.01));
+
+            Model model = Linear.train(prob, createParameterWithThreads(solver, 0.01, 4));
+            // the solvers shuffle the instances with param.random, so each run needs a fresh parameter
+            assertThat(Linear.train(prob, createParameterWithThreads(solver, 0.01, 4))).isEqualTo(model);
+
+            double[] expectedWeights = sequential.getFeatureWeights();
+            double[] weights = model.getFeatureWeights();
+            for (int i = 0; i < weights.length; i++) {
+                assertThat(weights[i]).as("weight of " + solver).isEqualTo(expectedWeights[i], Offset.offset(1e-10));
+            }
+        }
+    }
+
+    @Test
+    void testTrainAsyncDualSolvers() throws Exception {
+        Problem prob = createLargeProblem(20000, 2, 50, 0.1);
+
+        for (SolverType solver : EnumSet.of(L2R_L2LOSS_SVC_DUAL, L2R_L1LOSS_SVC_DUAL, L2R_LR_DUAL, L2R_L2LOSS_SVR_DUAL, L2R_L1LOSS_SVR_DUAL)) {
+            Model sequential = Linear.train(prob, new Parameter(solver, 1, 0.01));
+
+            // without multiple threads, the sequential solver is used
+            Parameter param = new Parameter(solver, 1, 0.01);
+            param.setAsyncDualCoordinateDescent(true);
+            assertThat(Linear.train(prob, param)).isEqualTo(sequential);
+
+            param.setNumThreads(4);
+            Model model = Linear.train(prob, param);
+            double expectedError = 0;
+            double error = 0;
+            for (int i = 0; i < prob.l; i++) {
+                expectedError += Math.abs(Linear.predict(sequential, prob.rows(), i) - prob.y[i]);
+                error += Math.abs(Linear.predict(model, prob.rows(), i) - prob.y[i]);
+            }
+            // the order of the updates is not reproducible, but the solution must be about as good
+            assertThat(error).as("error of " + solver).isCloseTo(expectedError, Offset.offset(0.01 * prob.l));
+        }
+    }
+
     @Test
     void testCrossValidation() throws Exception {
         int numClasses = random.nextInt(10) + 1;
@@ -183,6 +366,34 @@ class LinearTest {
         }
     }
 
+    @Test
+    void testCrossValidationInParallel() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+
+        for (SolverType solver : EnumSet.of(L2R_LR, L2R_L2LOSS_SVC_DUAL, L1R_LR)) {
+            double[] sequentialTarget = new double[prob.l];
+            Linear.crossValidation(prob, new Parameter(solver, 1, 0.1), 10, sequentialTarget);
+
+            double[] expectedTarget = null;
+            for (int numThreads : new int[] {2, 4, 16}) {
+                Parameter param = new Parameter(solver, 1, 0.1);
+                param.setNumThreads(numThreads);
+                double[] target = new double[prob.l];
+                Linear.crossValidation(prob, param, 10, target);
+                if (expectedTarget == null) {
+                    expectedTarget = target;
+                } else {
+                    assertThat(target).as("target of " + solver + " with " + numThreads + " threads").isEqualTo(expectedTarget);
+                }
+            }
+
+            // the folds are the same and the Newton solver doesn't use the random generator
+            if (solver == L2R_LR) {
+                assertThat(expectedTarget).isEqualTo(sequentialTarget);
+            }
+        }
+    }
+
     @Test
     void testLoadSaveModel(@TempDir Path tempDir) throws Exception {
         for (SolverType solverType : SolverType.values()) {
@@ -505,25 +716,24 @@ class LinearTest {
         prob.y[2] = 1;
         prob.y[3] = 0;
 
-        Problem transposed = Linear.transpose(prob);
+        Feature[][] transposed = toFeatures(Linear.transpose(prob));
 
-        assertThat(transposed.x[0].length).isEqualTo(1);
-        assertThat(transposed.x[1].length).isEqualTo(2);
-        assertThat(transposed.x[2].length).isEqualTo(2);
-        assertThat(transposed.x[3].length).isEqualTo(2);
+        assertThat(transposed[0].length).isEqualTo(1);
+        assertThat(transposed[1].length).isEqualTo(2);
+        assertThat(transposed[2].length).isEqualTo(2);
+        assertThat(transposed[3].length).isEqualTo(2);
 
-        assertThat(transposed.x[0][0]).isEqualTo(new FeatureNode(2, 1));
+        assertThat(transposed[0][0]).isEqualTo(new FeatureNode(2, 1));
 
-        assertThat(transposed.x[1][0]).isEqualTo(new FeatureNode(1, 1));
-        assertThat(transposed.x[1][1]).isEqualTo(new FeatureNode(4, 2));
+        assertThat(transposed[1][0]).isEqualTo(new FeatureNode(1, 1));
+        assertThat(transposed[1][1]).isEqualTo(new FeatureNode(4, 2));
 
-        assertThat(transposed.x[2][0]).isEqualTo(new FeatureNode(3, 1));
-        assertThat(transposed.x[2][1]).isEqualTo(new FeatureNode(4, 1));
+        assertThat(transposed[2][0]).isEqualTo(new FeatureNode(3, 1));
+        assertThat(transposed[2][1]).isEqualTo(new FeatureNode(4, 1));
 
-        assertThat(transposed.x[3][0]).isEqualTo(new FeatureNode(1, 1));
-        assertThat(transposed.x[3][1]).isEqualTo(new FeatureNode(4, 1));
+        assertThat(transposed[3][0]).isEqualTo(new FeatureNode(1, 1));
+        assertThat(transposed[3][1]).isEqualTo(new FeatureNode(4, 1));
 
-        assertThat(transposed.y).isEqualTo(prob.y);
     }
 
     /**
@@ -603,51 +813,50 @@ class LinearTest {
         prob.y[3] = 0;
         prob.y[4] = 1;
 
-        Problem transposed = Linear.transpose(prob);
+        Feature[][] transposed = toFeatures(Linear.transpose(prob));
 
-        assertThat(transposed.x[0]).hasSize(3);
-        assertThat(transposed.x[1]).hasSize(2);
-        assertThat(transposed.x[2]).hasSize(4);
-        assertThat(transposed.x[3]).hasSize(2);
-        assertThat(transposed.x[4]).hasSize(4);
-        assertThat(transposed.x[5]).hasSize(1);
-        assertThat(transposed.x[7]).hasSize(2);
-        assertThat(transposed.x[7]).hasSize(2);
-        assertThat(transposed.x[8]).hasSize(0);
-        assertThat(transposed.x[9]).hasSize(2);
+        assertThat(transposed[0]).hasSize(3);
+        assertThat(transposed[1]).hasSize(2);
+        assertThat(transposed[2]).hasSize(4);
+        assertThat(transposed[3]).hasSize(2);
+        assertThat(transposed[4]).hasSize(4);
+        assertThat(transposed[5]).hasSize(1);
+        assertThat(transposed[7]).hasSize(2);
+        assertThat(transposed[7]).hasSize(2);
+        assertThat(transposed[8]).hasSize(0);
+        assertThat(transposed[9]).hasSize(2);
 
-        assertThat(transposed.x[0][0]).isEqualTo(new FeatureNode(1, 7));
-        assertThat(transposed.x[0][1]).isEqualTo(new FeatureNode(3, 9));
-        assertThat(transposed.x[0][2]).isEqualTo(new FeatureNode(4, 2));
+        assertThat(transposed[0][0]).isEqualTo(new FeatureNode(1, 7));
+        assertThat(transposed[0][1]).isEqualTo(new FeatureNode(3, 9));
+        assertThat(transposed[0][2]).isEqualTo(new FeatureNode(4, 2));
 
-        assertThat(transposed.x[1][0]).isEqualTo(new FeatureNode(2, 1));
-        assertThat(transposed.x[1][1]).isEqualTo(new FeatureNode(4, 2));
+        assertThat(transposed[1][0]).isEqualTo(new FeatureNode(2, 1));
+        assertThat(transposed[1][1]).isEqualTo(new FeatureNode(4, 2));
 
-        assertThat(transposed.x[2][0]).isEqualTo(new FeatureNode(1, 3));
-        assertThat(transposed.x[2][1]).isEqualTo(new FeatureNode(3, 1));
-        assertThat(transposed.x[2][2]).isEqualTo(new FeatureNode(4, 9));
-        assertThat(transposed.x[2][3]).isEqualTo(new FeatureNode(5, 1));
+        assertThat(transposed[2][0]).isEqualTo(new FeatureNode(1, 3));
+        assertThat(transposed[2][1]).isEqualTo(new FeatureNode(3, 1));
+        assertThat(transposed[2][2]).isEqualTo(new FeatureNode(4, 9));
+        assertThat(transposed[2][3]).isEqualTo(new FeatureNode(5, 1));
 
-        assertThat(transposed.x[3][0]).isEqualTo(new FeatureNode(2, 5));
-        assertThat(transposed.x[3][1]).isEqualTo(new FeatureNode(4, 7));
+        assertThat(transposed[3][0]).isEqualTo(new FeatureNode(2, 5));
+        assertThat(transposed[3][1]).isEqualTo(new FeatureNode(4, 7));
 
-        assertThat(transposed.x[4][0]).isEqualTo(new FeatureNode(1, 2));
-        assertThat(transposed.x[4][1]).isEqualTo(new FeatureNode(2, 3));
-        assertThat(transposed.x[4][2]).isEqualTo(new FeatureNode(3, 1));
-        assertThat(transposed.x[4][3]).isEqualTo(new FeatureNode(4, 8));
+        assertThat(transposed[4][0]).isEqualTo(new FeatureNode(1, 2));
+        assertThat(transposed[4][1]).isEqualTo(new FeatureNode(2, 3));
+        assertThat(transposed[4][2]).isEqualTo(new FeatureNode(3, 1));
+        assertThat(transposed[4][3]).isEqualTo(new FeatureNode(4, 8));
 
-        assertThat(transposed.x[5][0]).isEqualTo(new FeatureNode(4, 1));
+        assertThat(transposed[5][0]).isEqualTo(new FeatureNode(4, 1));
 
-        assertThat(transposed.x[6][0]).isEqualTo(new FeatureNode(2, 4));
-        assertThat(transposed.x[6][1]).isEqualTo(new FeatureNode(4, 5));
+        assertThat(transposed[6][0]).isEqualTo(new FeatureNode(2, 4));
+        assertThat(transposed[6][1]).isEqualTo(new FeatureNode(4, 5));
 
-        assertThat(transposed.x[7][0]).isEqualTo(new FeatureNode(2, 2));
-        assertThat(transposed.x[7][1]).isEqualTo(new FeatureNode(4, 4));
+        assertThat(transposed[7][0]).isEqualTo(new FeatureNode(2, 2));
+        assertThat(transposed[7][1]).isEqualTo(new FeatureNode(4, 4));
 
-        assertThat(transposed.x[9][0]).isEqualTo(new FeatureNode(3, 7));
-        assertThat(transposed.x[9][1]).isEqualTo(new FeatureNode(5, 3));
+        assertThat(transposed[9][0]).isEqualTo(new FeatureNode(3, 7));
+        assertThat(transposed[9][1]).isEqualTo(new FeatureNode(5, 3));
 
-        assertThat(transposed.y).isEqualTo(prob.y);
     }
 
     /**
@@ -694,20 +903,44 @@ class LinearTest {
 
         prob.x[3][0] = new FeatureNode(3, 2);
 
-        Problem transposed = Linear.transpose(prob);
-        assertThat(transposed.x).hasDimensions(4, 2);
+        Feature[][] transposed = toFeatures(Linear.transpose(prob));
+        assertThat(transposed).hasDimensions(4, 2);
 
-        assertThat(transposed.x[0][0]).isEqualTo(new FeatureNode(1, 2));
-        assertThat(transposed.x[0][1]).isEqualTo(new FeatureNode(2, 9));
+        assertThat(transposed[0][0]).isEqualTo(new FeatureNode(1, 2));
+        assertThat(transposed[0][1]).isEqualTo(new FeatureNode(2, 9));
 
-        assertThat(transposed.x[1][0]).isEqualTo(new FeatureNode(2, 7));
-        assertThat(transposed.x[1][1]).isEqualTo(new FeatureNode(3, 1));
+        assertThat(transposed[1][0]).isEqualTo(new FeatureNode(2, 7));
+        assertThat(transposed[1][1]).isEqualTo(new FeatureNode(3, 1));
 
-        assertThat(transposed.x[2][0]).isEqualTo(new FeatureNode(1, 1));
-        assertThat(transposed.x[2][1]).isEqualTo(new FeatureNode(2, 3));
+        assertThat(transposed[2][0]).isEqualTo(new FeatureNode(1, 1));
+        assertThat(transposed[2][1]).isEqualTo(new FeatureNode(2, 3));
 
-        assertThat(transposed.x[3][0]).isEqualTo(new FeatureNode(1, 3));
-        assertThat(transposed.x[3][1]).isEqualTo(new FeatureNode(2, 3));
+        assertThat(transposed[3][0]).isEqualTo(new FeatureNode(1, 3));
+        assertThat(transposed[3][1]).isEqualTo(new FeatureNode(2, 3));
+    }
+
+    @Test
+    void testTransposeInParallel() throws Exception {
+        Problem prob = createLargeProblem(20000, 3, 30, 0.2);
+        CsrMatrix expected = Linear.transpose(prob);
+        assertThat(expected.getNumRows()).isEqualTo(prob.n);
+
+        for (int numThreads : new int[] {2, 3, 8}) {
+            CsrMatrix transposed = Linear.transpose(prob, numThreads);
+            assertThat(transposed.rowPtr).isEqualTo(expected.rowPtr);
+            assertThat(transposed.indices).isEqualTo(expected.indices);
+            assertThat(transposed.values).isEqualTo(expected.values);
+        }
+    }
+
+    private static Feature[][] toFeatures(FeatureMatrix matrix) {
+        Feature[][] x = new Feature[matrix.getNumRows()][];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = new Feature[matrix.getRowLength(i)];
+            for (int k = 0; k < x[i].length; k++)
+                x[i][k] = new FeatureNode(matrix.getIndex(i, k), matrix.getValue(i, k));
+        }
+        return x;
     }
 
     @Test
@@ -720,6 +953,36 @@ class LinearTest {
         assertThat(result.getBestP()).isEqualTo(-1);
     }
 
+    @Test
+    void testFindBestParametersInParallel() throws Exception {
+        Problem problem = Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1);
+        for (SolverType solver : EnumSet.of(L2R_LR, L2R_L2LOSS_SVC, L2R_L2LOSS_SVR)) {
+            ParameterSearchResult expected = Linear.findParameters(problem, new Parameter(solver, 1, 0.001, 0.1), 5, -1, -1);
+            for (int numThreads : new int[] {2, 8}) {
+                Parameter param = new Parameter(solver, 1, 0.001, 0.1);
+                param.setNumThreads(numThreads);
+                ParameterSearchResult result = Linear.findParameters(problem, param, 5, -1, -1);
+                assertThat(result.getBestC()).as("best C of " + solver).isEqualTo(expected.getBestC());
+                assertThat(result.getBestScore()).as("best score of " + solver).isEqualTo(expected.getBestScore());
+                assertThat(result.getBestP()).as("best p of " + solver).isEqualTo(expected.getBestP());
+            }
+        }
+    }
+
+    @Test
+    void testFindBestParametersWithSearchBlocks() throws Exception {
+        Problem problem = Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1);
+        for (int numThreads : new int[] {1, 4}) {
+            Parameter param = new Parameter(L2R_L2LOSS_SVC, 1, 0.001, 0.1);
+            param.setSearchBlockSize(4);
+            param.setNumThreads(numThreads);
+            ParameterSearchResult result = Linear.findParameters(problem, param, 5, -1, -1);
+            assertThat(result.getBestC()).isEqualTo(4);
+            assertThat(result.getBestScore()).isEqualTo(0.88);
+            assertThat(result.getBestP()).isEqualTo(-1);
+        }
+    }
+
     @Test
     void testFindBestParameterC_IllegalSolver() throws Exception {
         Problem problem = Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1);
@@ -0,0 +1,116 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class MappedCsrMatrixTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    @Test
+    void testWriteAndMap() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+        Path file = tempDir.resolve("iris.bin");
+        prob.writeBinaryFile(file);
+
+        Problem mapped = Problem.mapBinaryFile(file);
+
+        assertThat(mapped.l).isEqualTo(prob.l);
+        assertThat(mapped.n).isEqualTo(prob.n);
+        assertThat(mapped.bias).isEqualTo(prob.bias);
+        assertThat(mapped.y).isEqualTo(prob.y);
+        assertThat(mapped.x).isNull();
+        assertThat(mapped.matrix).isInstanceOf(MappedCsrMatrix.class);
+        assertSameFeatures(mapped.matrix, prob.x);
+    }
+
+    @Test
+    void testRowsCrossingChunks() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1);
+        Path file = tempDir.resolve("iris.bin");
+        prob.writeBinaryFile(file);
+
+        // chunks of 4 elements
+        Problem mapped = BinaryProblemFile.map(file, 2);
+        assertSameFeatures(mapped.matrix, prob.x);
+
+        FeatureMatrix x = prob.rows();
+        double[] s = new double[prob.n];
+        for (int j = 0; j < s.length; j++)
+            s[j] = j + 1;
+        for (int i = 0; i < prob.l; i++) {
+            assertThat(mapped.matrix.nrm2_sq(i)).isEqualTo(x.nrm2_sq(i));
+            assertThat(mapped.matrix.dot(i, s)).isEqualTo(x.dot(i, s));
+            assertThat(mapped.matrix.sparse_dot(i, 0)).isEqualTo(x.sparse_dot(i, 0));
+
+            double[] expected = new double[prob.n];
+            double[] actual = new double[prob.n];
+            x.axpy(0.5, i, expected);
+            mapped.matrix.axpy(0.5, i, actual);
+            assertThat(actual).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testSelect() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1);
+        Path file = tempDir.resolve("iris.bin");
+        prob.writeBinaryFile(file);
+        Problem mapped = Problem.mapBinaryFile(file);
+
+        FeatureMatrix selected = mapped.matrix.select(new int[] {5, 3, 7}).select(new int[] {2, 0});
+
+        assertSameFeatures(selected, new Feature[][] {prob.x[7], prob.x[5]});
+    }
+
+    @Test
+    void testMapInvalidFile() throws Exception {
+        Path file = tempDir.resolve("invalid.bin");
+        Files.write(file, new byte[32]);
+
+        assertThatExceptionOfType(IOException.class)
+            .isThrownBy(() -> Problem.mapBinaryFile(file))
+            .withMessage("not a binary problem file");
+    }
+
+    @Test
+    void testMapTruncatedFile() throws Exception {
+        Problem prob = Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1);
+        Path file = tempDir.resolve("iris.bin");
+        prob.writeBinaryFile(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertThatExceptionOfType(IOException.class)
+            .isThrownBy(() -> Problem.mapBinaryFile(file))
+            .withMessageStartingWith("unexpected size of binary problem file");
+    }
+
+    private static void assertSameFeatures(FeatureMatrix matrix, Feature[][] x) {
+        assertThat(matrix.getNumRows()).isEqualTo(x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertThat(matrix.getRowLength(i)).isEqualTo(x[i].length);
+            for (int k = 0; k < x[i].length; k++) {
+                assertThat(matrix.getIndex(i, k)).isEqualTo(x[i][k].getIndex());
+                assertThat(matrix.getValue(i, k)).isEqualTo(x[i][k].getValue());
+            }
+        }
+    }
+
+}
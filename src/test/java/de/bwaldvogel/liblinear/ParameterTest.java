@@ -4,6 +4,7 @@ import static de.bwaldvogel.liblinear.SolverType.*;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -167,6 +168,30 @@ class ParameterTest {
         assertThat(param.getInitSol()).isEqualTo(init_sol);
     }
 
+    @Test
+    void testSetNumThreads() {
+        Parameter param = new Parameter(L2R_LR, 100, 1e-3);
+        assertThat(param.getNumThreads()).isEqualTo(1);
+        param.setNumThreads(8);
+        assertThat(param.getNumThreads()).isEqualTo(8);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> param.setNumThreads(0))
+            .withMessage("numThreads must not be <= 0");
+    }
+
+    @Test
+    void testSetSearchBlockSize() {
+        Parameter param = new Parameter(L2R_LR, 100, 1e-3);
+        assertThat(param.getSearchBlockSize()).isEqualTo(1);
+        param.setSearchBlockSize(4);
+        assertThat(param.getSearchBlockSize()).isEqualTo(4);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> param.setSearchBlockSize(0))
+            .withMessage("searchBlockSize must not be <= 0");
+    }
+
     @Test
     void testClone_Simple() throws Exception {
         Parameter parameter = new Parameter(L1R_LR, 123.456, 0.123);
@@ -177,6 +202,7 @@ class ParameterTest {
         assertThat(clone.getWeights()).isNull();
         assertThat(clone.getWeightLabels()).isNull();
         assertThat(clone.getNumWeights()).isEqualTo(0);
+        assertThat(clone.isAsyncDualCoordinateDescent()).isFalse();
     }
 
     @Test
@@ -185,6 +211,11 @@ class ParameterTest {
         parameter.setWeights(new double[] {1, 2}, new int[] {3, 4});
         Random random = new Random(123);
         parameter.setRandom(random);
+        parameter.setNumThreads(4);
+        parameter.setSearchBlockSize(8);
+        parameter.setAsyncDualCoordinateDescent(true);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        parameter.setForkJoinPool(pool);
         Parameter clone = parameter.clone();
         assertThat(clone.getSolverType()).isEqualTo(L1R_LR);
         assertThat(clone.getC()).isEqualTo(123.456);
@@ -194,6 +225,11 @@ class ParameterTest {
         assertThat(clone.getWeights()).containsExactly(1, 2);
         assertThat(clone.getWeightLabels()).containsExactly(3, 4);
         assertThat(clone.getNumWeights()).isEqualTo(2);
+        assertThat(clone.getNumThreads()).isEqualTo(4);
+        assertThat(clone.getSearchBlockSize()).isEqualTo(8);
+        assertThat(clone.isAsyncDualCoordinateDescent()).isTrue();
+        assertThat(clone.getForkJoinPool()).isSameAs(pool);
+        pool.shutdown();
 
         assertThat(clone.random).isNotSameAs(random);
         assertThat(random.nextInt()).isEqualTo(clone.random.nextInt());
@@ -0,0 +1,148 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+
+class PredictorTest {
+
+    private static Problem createProblem(Random random, int numClasses, double bias) {
+        ProblemBuilder builder = new ProblemBuilder();
+        for (int i = 0; i < 200; i++) {
+            int c = i % numClasses;
+            ProblemBuilder.Row row = builder.beginRow(c);
+            for (int index = 1; index <= 20; index++) {
+                if (random.nextInt(3) == 0)
+                    row.add(index, random.nextGaussian() + 0.3 * c * (index % 2));
+            }
+            row.end();
+        }
+        return builder.build(bias);
+    }
+
+    private static Feature[] toFeatures(FeatureMatrix x, int row) {
+        // plus a feature that is unknown to the model
+        Feature[] features = new Feature[x.getRowLength(row) + 1];
+        for (int k = 0; k < features.length - 1; k++)
+            features[k] = new FeatureNode(x.getIndex(row, k), x.getValue(row, k));
+        features[features.length - 1] = new FeatureNode(1000, 1);
+        return features;
+    }
+
+    @Test
+    void testPredictionsAreIdenticalToLinear() throws Exception {
+        Random random = new Random(12345);
+        Linear.disableDebugOutput();
+        for (SolverType solverType : SolverType.values()) {
+            if (solverType.isOneClass())
+                continue;
+            // the binary predictor runs first, so the array per thread must grow for the multi-class predictor
+            for (int numClasses : new int[] {2, 4}) {
+                Problem prob = createProblem(random, numClasses, numClasses == 2 ? 1 : -1);
+                Model model = Linear.train(prob, new Parameter(solverType, 1, 0.01));
+                Predictor predictor = new Predictor(model);
+                assertThat(predictor.getNrClass()).isEqualTo(model.getNrClass());
+                assertThat(predictor.isProbabilityModel()).isEqualTo(model.isProbabilityModel());
+
+                FeatureMatrix x = prob.rows();
+                for (int row = 0; row < prob.l; row++) {
+                    Feature[] features = toFeatures(x, row);
+                    assertThat(predictor.predict(features)).isEqualTo(Linear.predict(model, features));
+                    assertThat(predictor.predict(x, row)).isEqualTo(Linear.predict(model, x, row));
+
+                    double[] scratch = new double[model.getNrClass()];
+                    assertThat(predictor.predict(features, scratch)).isEqualTo(Linear.predict(model, features));
+                    assertThat(predictor.predict(x, row, scratch)).isEqualTo(Linear.predict(model, x, row));
+
+                    double[] expected = new double[model.getNrClass()];
+                    double[] actual = new double[model.getNrClass()];
+                    assertThat(predictor.predictValues(features, actual)).isEqualTo(Linear.predictValues(model, features, expected));
+                    assertThat(actual).containsExactly(expected);
+
+                    if (model.isProbabilityModel()) {
+                        assertThat(predictor.predictProbability(x, row, actual)).isEqualTo(Linear.predictProbability(model, x, row, expected));
+                        assertThat(actual).containsExactly(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOneClass() throws Exception {
+        Problem prob = createProblem(new Random(12345), 1, -1);
+        Parameter param = new Parameter(SolverType.ONECLASS_SVM, 1, 0.01);
+        param.setNu(0.5);
+        Model model = Linear.train(prob, param);
+        Predictor predictor = new Predictor(model);
+
+        FeatureMatrix x = prob.rows();
+        for (int row = 0; row < prob.l; row++) {
+            assertThat(predictor.predict(toFeatures(x, row))).isEqualTo(Linear.predict(model, toFeatures(x, row)));
+            assertThat(predictor.predict(x, row)).isEqualTo(Linear.predict(model, x, row));
+        }
+    }
+
+    @Test
+    void testWeightsAreCopied() throws Exception {
+        Problem prob = createProblem(new Random(12345), 2, -1);
+        Model model = Linear.train(prob, new Parameter(SolverType.L2R_LR, 1, 0.01));
+        Predictor predictor = new Predictor(model);
+        double expected = predictor.predict(prob.rows(), 0);
+
+        model.w[0] = 0;
+        model.label[0] = 42;
+        assertThat(predictor.predict(prob.rows(), 0)).isEqualTo(expected);
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        Problem prob = createProblem(new Random(12345), 3, -1);
+        Predictor predictor = new Predictor(Linear.train(prob, new Parameter(SolverType.L2R_L2LOSS_SVC, 1, 0.01)));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> predictor.predictProbability(prob.rows(), 0, new double[3]))
+            .withMessageStartingWith("probability output is only supported for logistic regression");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> predictor.predictValues(prob.rows(), 0, new double[2]))
+            .withMessage("array of length 2 is too short, at least 3 elements are needed");
+    }
+
+    @Test
+    void testConcurrentPredictions() throws Exception {
+        Problem prob = createProblem(new Random(12345), 4, 1);
+        Model model = Linear.train(prob, new Parameter(SolverType.L2R_LR, 1, 0.01));
+        Predictor predictor = new Predictor(model);
+
+        double[] expected = new double[prob.l];
+        for (int row = 0; row < prob.l; row++)
+            expected[row] = Linear.predict(model, prob.rows(), row);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    double[] labels = new double[prob.l];
+                    for (int repetition = 0; repetition < 100; repetition++) {
+                        for (int row = 0; row < prob.l; row++)
+                            labels[row] = predictor.predict(prob.rows(), row);
+                    }
+                    return labels;
+                }));
+            }
+            for (Future<double[]> future : futures)
+                assertThat(future.get()).containsExactly(expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+
+class ProblemBuilderTest {
+
+    @Test
+    void testBuild() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        builder.addRow(1, new int[] {2, 3}, new double[] {0.1, 0.2});
+        builder.beginRow(2).end();
+        builder.beginRow(1).add(1, 0.4).add(6, 1).end();
+
+        assertThat(builder.getNumRows()).isEqualTo(3);
+        assertThat(builder.getMaxIndex()).isEqualTo(6);
+
+        Problem prob = builder.build(-1);
+        assertThat(prob.l).isEqualTo(3);
+        assertThat(prob.n).isEqualTo(6);
+        assertThat(prob.bias).isEqualTo(-1);
+        assertThat(prob.y).containsExactly(1, 2, 1);
+        assertThat(prob.x).isNull();
+
+        CsrMatrix matrix = (CsrMatrix)prob.matrix;
+        assertThat(matrix.rowPtr).containsExactly(0, 2, 2, 4);
+        assertThat(matrix.indices).containsExactly(2, 3, 1, 6);
+        assertThat(matrix.values).containsExactly(0.1, 0.2, 0.4, 1);
+    }
+
+    @Test
+    void testBuildWithBias() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        builder.addRow(1, new int[] {2, 3}, new double[] {0.1, 0.2});
+        builder.beginRow(2).end();
+
+        Problem prob = builder.build(1);
+        assertThat(prob.n).isEqualTo(4);
+        assertThat(prob.bias).isEqualTo(1);
+
+        CsrMatrix matrix = (CsrMatrix)prob.matrix;
+        assertThat(matrix.rowPtr).containsExactly(0, 3, 4);
+        assertThat(matrix.indices).containsExactly(2, 3, 4, 4);
+        assertThat(matrix.values).containsExactly(0.1, 0.2, 1, 1);
+
+        // the builder can be continued after build
+        builder.addRow(3, new int[] {5}, new double[] {0.5});
+        Problem prob2 = builder.build(1);
+        assertThat(prob2.l).isEqualTo(3);
+        assertThat(prob2.n).isEqualTo(6);
+        assertThat(((CsrMatrix)prob2.matrix).indices).containsExactly(2, 3, 6, 6, 5, 6);
+        assertThat(matrix.indices).containsExactly(2, 3, 4, 4);
+    }
+
+    @Test
+    void testBuildIndicatorFeatures() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        builder.addRow(1, new int[] {2, 3}, new double[] {1, 1});
+        builder.addRow(2, new int[] {1}, new double[] {1});
+
+        Problem prob = builder.build(1);
+        assertThat(prob.matrix).isInstanceOf(IndicatorCsrMatrix.class);
+        IndicatorCsrMatrix matrix = (IndicatorCsrMatrix)prob.matrix;
+        assertThat(matrix.rowPtr).containsExactly(0, 3, 5);
+        assertThat(matrix.indices).containsExactly(2, 3, 4, 1, 4);
+
+        assertThat(builder.build(-1).matrix).isInstanceOf(IndicatorCsrMatrix.class);
+        // the bias feature has a different value
+        assertThat(builder.build(0.5).matrix).isInstanceOf(CsrMatrix.class);
+
+        builder.addRow(1, new int[] {2}, new double[] {2});
+        assertThat(builder.build(1).matrix).isInstanceOf(CsrMatrix.class);
+    }
+
+    @Test
+    void testGrowBuffers() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        for (int i = 0; i < 1000; i++) {
+            ProblemBuilder.Row row = builder.beginRow(i % 2);
+            for (int k = 1; k <= i % 17; k++)
+                row.add(k * 3, i + k);
+            row.end();
+        }
+
+        Problem prob = builder.build(-1);
+        assertThat(prob.l).isEqualTo(1000);
+        assertThat(prob.n).isEqualTo(16 * 3);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(prob.y[i]).isEqualTo(i % 2);
+            assertThat(prob.matrix.getRowLength(i)).isEqualTo(i % 17);
+            for (int k = 0; k < i % 17; k++) {
+                assertThat(prob.matrix.getIndex(i, k)).isEqualTo((k + 1) * 3);
+                assertThat(prob.matrix.getValue(i, k)).isEqualTo(i + k + 1);
+            }
+        }
+    }
+
+    @Test
+    void testTrainBuiltProblem() throws Exception {
+        Linear.disableDebugOutput();
+        ProblemBuilder builder = new ProblemBuilder();
+        Feature[][] x = new Feature[][] {
+            {new FeatureNode(1, 1), new FeatureNode(2, 0.5)},
+            {new FeatureNode(1, -1), new FeatureNode(3, 0.5)},
+            {new FeatureNode(2, 1), new FeatureNode(3, -0.25)},
+            {new FeatureNode(1, -0.5), new FeatureNode(2, -1)},
+        };
+        double[] y = new double[] {1, 2, 1, 2};
+        for (int i = 0; i < x.length; i++) {
+            ProblemBuilder.Row row = builder.beginRow(y[i]);
+            for (Feature feature : x[i])
+                row.add(feature.getIndex(), feature.getValue());
+            row.end();
+        }
+
+        Problem expected = new Problem();
+        expected.l = x.length;
+        expected.n = 4;
+        expected.bias = 1;
+        expected.y = y;
+        expected.x = new Feature[x.length][];
+        for (int i = 0; i < x.length; i++) {
+            expected.x[i] = new Feature[] {x[i][0], x[i][1], new FeatureNode(4, 1)};
+        }
+
+        Parameter param = new Parameter(SolverType.L2R_LR, 1, 0.01);
+        Model model = Linear.train(builder.build(1), param);
+        Model expectedModel = Linear.train(expected, param);
+        assertThat(model.getFeatureWeights()).containsExactly(expectedModel.getFeatureWeights());
+    }
+
+    @Test
+    void testIllegalArguments() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> builder.addRow(1, new int[] {1, 2}, new double[] {1}))
+            .withMessage("indices and values must have the same length");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new ProblemBuilder().beginRow(1).add(0, 1))
+            .withMessage("index must be > 0");
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> new ProblemBuilder().beginRow(1).add(2, 1).add(2, 1))
+            .withMessage("indices must be sorted in ascending order");
+    }
+
+    @Test
+    void testRejectedFeatureDiscardsRow() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        builder.addRow(1, new int[] {1, 2}, new double[] {0.5, 0.25});
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> builder.addRow(2, new int[] {3, 3}, new double[] {1, 1}))
+            .withMessage("indices must be sorted in ascending order");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> builder.beginRow(2).add(3, 1).add(-1, 1))
+            .withMessage("index must be > 0");
+
+        // the partial rows were discarded and a new row can be started
+        builder.beginRow(3).add(2, 1).end();
+        Problem prob = builder.build(-1);
+        assertThat(prob.l).isEqualTo(2);
+        assertThat(prob.n).isEqualTo(2);
+        assertThat(prob.y).containsExactly(1, 3);
+        assertThat(prob.rows().getRowLength(1)).isEqualTo(1);
+    }
+
+    @Test
+    void testBiasIndexOverflow() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        builder.beginRow(1).add(Integer.MAX_VALUE, 1).end();
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> builder.build(1))
+            .withMessage("the index of the bias feature would overflow, the largest feature index is 2147483647");
+    }
+
+    @Test
+    void testIllegalState() throws Exception {
+        ProblemBuilder builder = new ProblemBuilder();
+        ProblemBuilder.Row row = builder.beginRow(1);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> builder.beginRow(2))
+            .withMessage("the previous row was not ended");
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> builder.build(1))
+            .withMessage("the last row was not ended");
+
+        row.end();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(row::end)
+            .withMessage("no row was started");
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> row.add(1, 1))
+            .withMessage("no row was started");
+    }
+
+}
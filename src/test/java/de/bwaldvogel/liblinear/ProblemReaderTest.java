@@ -0,0 +1,222 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ProblemReaderTest {
+
+    private static Problem read(String data, Charset charset, double bias) throws Exception {
+        return Train.readProblem(new ByteArrayInputStream(data.getBytes(charset)), charset, bias);
+    }
+
+    private static Problem readCompact(String data, Charset charset, double bias) throws Exception {
+        return Train.readCompactProblem(new ByteArrayInputStream(data.getBytes(charset)), charset, bias);
+    }
+
+    @Test
+    void testParseDouble() throws Exception {
+        ProblemReader reader = new ProblemReader(-1, StandardCharsets.US_ASCII);
+        Random random = new Random(4711);
+        for (int i = 0; i < 100_000; i++) {
+            final String number;
+            switch (i % 4) {
+                case 0:
+                    number = Double.toString(random.nextDouble());
+                    break;
+                case 1:
+                    number = String.format(Locale.ROOT, "%." + random.nextInt(17) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20)));
+                    break;
+                case 2:
+                    number = String.format(Locale.ROOT, "%." + random.nextInt(17) + "e", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(60) - 30));
+                    break;
+                default:
+                    number = (random.nextInt(2_000_000) - 1_000_000) + "e" + (random.nextInt(60) - 30);
+            }
+            assertThat(parseDouble(reader, number)).as(number).isEqualTo(Double.parseDouble(number));
+        }
+
+        for (String number : new String[] {"-0", "+1", ".5", "5.", "1E-5", "1e+3", "1e22", "1e23", "9007199254740993", "0.1234567890123456789",
+            "1e-400", "0x1p3", "1.0d", "2f", "00000000000012"}) {
+            assertThat(parseDouble(reader, number)).as(number).isEqualTo(Double.parseDouble(number));
+        }
+
+        for (String number : new String[] {"1e", "e5", "1.2.3", "-", ".", "1_0"}) {
+            assertThatExceptionOfType(NumberFormatException.class)
+                .isThrownBy(() -> parseDouble(reader, number));
+        }
+
+        for (String number : new String[] {"NaN", "Infinity", "1e400"}) {
+            assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> parseDouble(reader, number))
+                .withMessageStartingWith("NaN or Infinity in input");
+        }
+    }
+
+    private static double parseDouble(ProblemReader reader, String number) {
+        byte[] bytes = ("x" + number + "x").getBytes(StandardCharsets.US_ASCII);
+        return reader.parseDouble(bytes, 1, bytes.length - 1);
+    }
+
+    @Test
+    void testParseInt() throws Exception {
+        ProblemReader reader = new ProblemReader(-1, StandardCharsets.US_ASCII);
+        assertThat(parseInt(reader, "1")).isEqualTo(1);
+        assertThat(parseInt(reader, "+17")).isEqualTo(17);
+        assertThat(parseInt(reader, "0000000000042")).isEqualTo(42);
+        assertThat(parseInt(reader, "-4")).isEqualTo(-4);
+        assertThat(parseInt(reader, "2147483647")).isEqualTo(Integer.MAX_VALUE);
+
+        for (String number : new String[] {"+", "1.0", "2147483648", "a"}) {
+            assertThatExceptionOfType(NumberFormatException.class)
+                .isThrownBy(() -> parseInt(reader, number));
+        }
+    }
+
+    private static int parseInt(ProblemReader reader, String number) {
+        byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+        return reader.parseInt(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void testLineTerminatorsAndDelimiters() throws Exception {
+        String data = "1 1:0.5\t3:2\r"
+            + "-1 2 4\r\n"
+            + "  1\f5:1e-3  6\n"
+            + "0 2:1";
+
+        for (Charset charset : new Charset[] {StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16}) {
+            Problem prob = read(data, charset, 1);
+            assertThat(prob.l).isEqualTo(4);
+            assertThat(prob.n).isEqualTo(6);
+            assertThat(prob.y).containsExactly(1, -1, 1, 0);
+            assertThat(prob.x[0]).containsExactly(new FeatureNode(1, 0.5), new FeatureNode(3, 2), new FeatureNode(6, 1));
+            assertThat(prob.x[1]).containsExactly(new FeatureNode(2, 4), new FeatureNode(6, 1));
+            // the trailing index without value is ignored
+            assertThat(prob.x[2]).containsExactly(new FeatureNode(5, 1e-3), new FeatureNode(6, 1));
+            assertThat(prob.x[3]).containsExactly(new FeatureNode(2, 1), new FeatureNode(6, 1));
+
+            Problem compact = readCompact(data, charset, 1);
+            assertThat(compact.l).isEqualTo(prob.l);
+            assertThat(compact.n).isEqualTo(prob.n);
+            assertThat(compact.y).isEqualTo(prob.y);
+            assertThat(compact.x).isNull();
+            CsrMatrix matrix = (CsrMatrix)compact.matrix;
+            assertThat(matrix.rowPtr).containsExactly(0, 3, 5, 7, 9);
+            assertThat(matrix.indices).containsExactly(1, 3, 6, 2, 6, 5, 6, 2, 6);
+            assertThat(matrix.values).containsExactly(0.5, 2, 1, 4, 1, 1e-3, 1, 1, 1);
+        }
+    }
+
+    @Test
+    void testLongLine() throws Exception {
+        StringBuilder line = new StringBuilder("1");
+        for (int i = 1; i <= 50_000; i++) {
+            line.append(' ').append(i).append(":0.25");
+        }
+        Problem prob = readCompact(line + "\n" + line, StandardCharsets.UTF_8, -1);
+        assertThat(prob.l).isEqualTo(2);
+        assertThat(prob.n).isEqualTo(50_000);
+        assertThat(prob.matrix.getRowLength(1)).isEqualTo(50_000);
+        assertThat(prob.matrix.getValue(1, 49_999)).isEqualTo(0.25);
+    }
+
+    @Test
+    void testEmptyProblem() throws Exception {
+        Problem prob = readCompact("", StandardCharsets.UTF_8, 1);
+        assertThat(prob.l).isZero();
+        assertThat(prob.n).isEqualTo(1);
+        assertThat(prob.matrix.getNumRows()).isZero();
+    }
+
+    @Test
+    void testParseChunksInParallel(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("problem");
+        StringBuilder data = new StringBuilder();
+        Random random = new Random(12345);
+        for (int i = 0; i < 1000; i++) {
+            data.append(random.nextInt(3));
+            int index = 0;
+            for (int k = random.nextInt(10); k > 0; k--) {
+                index += 1 + random.nextInt(20);
+                data.append(' ').append(index).append(':').append(random.nextDouble());
+            }
+            data.append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+        Files.write(file, data.toString().getBytes(StandardCharsets.UTF_8));
+
+        Problem expected = readCompact(data.toString(), StandardCharsets.UTF_8, 1);
+        CsrMatrix expectedMatrix = (CsrMatrix)expected.matrix;
+
+        for (long chunkSize : new long[] {1, 100, 4096}) {
+            ProblemReader[] parts = ProblemReader.parse(file, StandardCharsets.UTF_8, 1, chunkSize);
+            Problem prob = ProblemReader.toCompactProblem(parts);
+            assertThat(prob.l).isEqualTo(expected.l);
+            assertThat(prob.n).isEqualTo(expected.n);
+            assertThat(prob.y).isEqualTo(expected.y);
+            CsrMatrix matrix = (CsrMatrix)prob.matrix;
+            assertThat(matrix.rowPtr).isEqualTo(expectedMatrix.rowPtr);
+            assertThat(matrix.indices).isEqualTo(expectedMatrix.indices);
+            assertThat(matrix.values).isEqualTo(expectedMatrix.values);
+
+            Problem legacy = ProblemReader.toProblem(parts);
+            assertThat(legacy.x).hasSize(expected.l);
+            assertThat(legacy.x[expected.l - 1]).hasSize(expected.matrix.getRowLength(expected.l - 1));
+        }
+    }
+
+    @Test
+    void testErrorLineNumbersOfParallelChunks(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("problem");
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            data.append("1 1:0.5 2:1\n");
+        }
+        data.append("1 2:1 1:1\n");
+        data.append("\n");
+        Files.write(file, data.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (long chunkSize : new long[] {1, 100, 4096}) {
+            assertInvalidInputData(() -> ProblemReader.parse(file, StandardCharsets.UTF_8, -1, chunkSize),
+                "indices must be sorted in ascending order", 501);
+        }
+    }
+
+    @Test
+    void testParseEmptyFileInParallel(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("problem");
+        Files.write(file, new byte[0]);
+
+        Problem prob = ProblemReader.toCompactProblem(ProblemReader.parse(file, StandardCharsets.UTF_8, -1, 1));
+        assertThat(prob.l).isZero();
+        assertThat(prob.n).isZero();
+    }
+
+    @Test
+    void testErrorLineNumbers() throws Exception {
+        assertInvalidInputData(() -> read("1 1:1\r\n\r\n2 1:1", StandardCharsets.UTF_8, -1), "empty line", 2);
+        assertInvalidInputData(() -> read("1 1:1\n1 1:1\rx 1:1", StandardCharsets.UTF_8, -1), "invalid label: x", 3);
+        assertInvalidInputData(() -> readCompact("1 1:1\n1 1.5:1", StandardCharsets.UTF_8, -1), "invalid index: 1.5", 2);
+        assertInvalidInputData(() -> readCompact("1 1:1\n\n", StandardCharsets.UTF_16, -1), "empty line", 2);
+        assertInvalidInputData(() -> read("1 1:1\n1 2:1\n1 3:\u00e4", StandardCharsets.ISO_8859_1, -1), "invalid value: \u00e4", 3);
+    }
+
+    private static void assertInvalidInputData(Executable executable, String expectedMessage, int expectedLine) {
+        InvalidInputDataException e = assertThrows(InvalidInputDataException.class, executable);
+        assertThat(e).hasMessage(expectedMessage);
+        assertThat(e.getLine()).isEqualTo(expectedLine);
+    }
+
+}
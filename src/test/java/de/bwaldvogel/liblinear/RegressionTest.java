@@ -1,6 +1,7 @@
 package de.bwaldvogel.liblinear;
 
 import static de.bwaldvogel.liblinear.SolverType.*;
+import static de.bwaldvogel.liblinear.TestUtils.*;
 import static org.assertj.core.api.Assertions.*;
 
 import java.nio.charset.StandardCharsets;
@@ -150,14 +151,6 @@ class RegressionTest {
                             default:
                                 throw new IllegalArgumentException("Unexpected bias: " + bias);
                         }
-                    case L2R_L2LOSS_SVC_DUAL:
-                        switch (bias) {
-                            case -1:
-                            case 1:
-                                return 0.9452;
-                            default:
-                                throw new IllegalArgumentException("Unexpected bias: " + bias);
-                        }
                     case L2R_L2LOSS_SVC:
                         switch (bias) {
                             case -1:
@@ -167,15 +160,6 @@ class RegressionTest {
                             default:
                                 throw new IllegalArgumentException("Unexpected bias: " + bias);
                         }
-                    case L2R_L1LOSS_SVC_DUAL:
-                        switch (bias) {
-                            case -1:
-                                return 0.94688;
-                            case 1:
-                                return 0.94604;
-                            default:
-                                throw new IllegalArgumentException("Unexpected bias: " + bias);
-                        }
                     case MCSVM_CS:
                         switch (bias) {
                             case -1:
@@ -185,33 +169,14 @@ class RegressionTest {
                             default:
                                 throw new IllegalArgumentException("Unexpected bias: " + bias);
                         }
+                    case L2R_L2LOSS_SVC_DUAL:
+                    case L2R_L1LOSS_SVC_DUAL:
                     case L1R_L2LOSS_SVC:
-                        switch (bias) {
-                            case -1:
-                                return 0.9553;
-                            case 1:
-                                return regularizeBias ? 0.956998 : 0.95363;
-                            default:
-                                throw new IllegalArgumentException("Unexpected bias: " + bias);
-                        }
                     case L1R_LR:
-                        switch (bias) {
-                            case -1:
-                                return 0.9536;
-                            case 1:
-                                return regularizeBias ? 0.95194 : 0.95278;
-                            default:
-                                throw new IllegalArgumentException("Unexpected bias: " + bias);
-                        }
                     case L2R_LR_DUAL:
-                        switch (bias) {
-                            case -1:
-                                return 0.9486;
-                            case 1:
-                                return 0.94941;
-                            default:
-                                throw new IllegalArgumentException("Unexpected bias: " + bias);
-                        }
+                        // the classes are seeded in class order since the seeds are the same for any number of threads;
+                        // the predictions of these solvers are pinned by the recorded prediction files
+                        return null;
                     default:
                         throw new IllegalArgumentException("Unexpected solverType: " + solverType);
                 }
@@ -325,6 +290,54 @@ class RegressionTest {
         }
     }
 
+    private static Collection<TestParams> floatPrecisionData() {
+        List<TestParams> params = new ArrayList<>();
+        for (String dataset : new String[] {"splice", "dna.scale"}) {
+            for (SolverType solverType : SOLVERS) {
+                params.add(new TestParams(dataset, solverType, 1, true, null));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * compares the models that are trained with {@link FloatCsrMatrix} to the models of the double-precision path
+     */
+    @ParameterizedTest
+    @MethodSource("floatPrecisionData")
+    void floatPrecisionTest(TestParams params) throws Exception {
+        Path trainingFile = Paths.get("src/test/datasets", params.dataset, params.dataset);
+        Problem problem = Train.readProblem(trainingFile, params.bias);
+        Model expectedModel = Linear.train(problem, new Parameter(params.solverType, 1, 0.1));
+
+        Problem floatProblem = withMatrix(problem, FloatCsrMatrix.fromFeatures(problem.x));
+        Model model = Linear.train(floatProblem, new Parameter(params.solverType, 1, 0.1));
+
+        Path testFile = Paths.get("src/test/datasets", params.dataset, params.dataset + ".t");
+        Problem testProblem = Train.readProblem(testFile, params.bias);
+
+        int expectedCorrectPredictions = 0;
+        int correctPredictions = 0;
+        for (int i = 0; i < testProblem.l; i++) {
+            Feature[] x = testProblem.x[i];
+            double[] expectedValues = new double[expectedModel.getNrClass()];
+            double[] predictedValues = new double[model.getNrClass()];
+            if (Linear.predictValues(expectedModel, x, expectedValues) == testProblem.y[i]) {
+                expectedCorrectPredictions++;
+            }
+            if (Linear.predictValues(model, x, predictedValues) == testProblem.y[i]) {
+                correctPredictions++;
+            }
+            for (int n = 0; n < predictedValues.length; n++) {
+                assertThat(predictedValues[n]).isEqualTo(expectedValues[n], Offset.offset(1e-3));
+            }
+        }
+
+        double expectedAccuracy = expectedCorrectPredictions / (double)testProblem.l;
+        double accuracy = correctPredictions / (double)testProblem.l;
+        assertThat(accuracy).isEqualTo(expectedAccuracy, Offset.offset(1e-3));
+    }
+
     @Test
     void testOneClass(@TempDir Path tempDir) throws Exception {
         Path trainingFile = Paths.get("src/test/datasets/splice/splice");
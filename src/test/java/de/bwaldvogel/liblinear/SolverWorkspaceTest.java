@@ -0,0 +1,88 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import de.bwaldvogel.liblinear.SolverWorkspace.DoubleArray;
+import de.bwaldvogel.liblinear.SolverWorkspace.IntArray;
+
+
+class SolverWorkspaceTest {
+
+    @Test
+    void testArraysAreReusedAndCleared() throws Exception {
+        SolverWorkspace workspace = new SolverWorkspace();
+
+        double[] s = workspace.get(DoubleArray.NEWTON_S, 3);
+        s[1] = 5;
+        assertThat(workspace.get(DoubleArray.NEWTON_S, 3)).isSameAs(s).containsExactly(0, 0, 0);
+        assertThat(workspace.get(DoubleArray.NEWTON_R, 3)).isNotSameAs(s);
+
+        double[] resized = workspace.get(DoubleArray.NEWTON_S, 4);
+        assertThat(resized).isNotSameAs(s).hasSize(4);
+
+        int[] index = workspace.get(IntArray.DUAL_INDEX, 2);
+        index[0] = 7;
+        assertThat(workspace.get(IntArray.DUAL_INDEX, 2)).isSameAs(index).containsExactly(0, 0);
+    }
+
+    @Test
+    void testPartialSums() throws Exception {
+        SolverWorkspace workspace = new SolverWorkspace();
+
+        double[][] partialSums = workspace.partialSums(1, 3);
+        assertThat(partialSums).hasSize(1);
+        assertThat(partialSums[0]).hasSize(3);
+        double[] first = partialSums[0];
+
+        // more accumulators are only allocated if more are needed
+        partialSums = workspace.partialSums(3, 3);
+        assertThat(partialSums).hasSize(3);
+        assertThat(partialSums[0]).isSameAs(first);
+        assertThat(workspace.partialSums(2, 3)).isSameAs(partialSums);
+
+        assertThat(workspace.partialSums(1, 4)[0]).hasSize(4);
+    }
+
+    @Test
+    void testZeroGradientNorm() throws Exception {
+        SolverWorkspace workspace = new SolverWorkspace();
+        Parameter param = new Parameter(SolverType.L2R_LR, 1, 0.01);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 2, 1)).isNaN();
+
+        workspace.setZeroGradientNorm(param, 0, 2, 1, 3.5);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 2, 1)).isEqualTo(3.5);
+        assertThat(workspace.getZeroGradientNorm(param, 1, 2, 1)).isNaN();
+
+        // the norm is only scaled if the costs are scaled exactly by a power of two
+        param.setC(4);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 8, 4)).isEqualTo(14.0);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 8, 3)).isNaN();
+        param.setC(3);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 6, 3)).isNaN();
+
+        param.setC(1);
+        param.setSolverType(SolverType.L2R_L2LOSS_SVC);
+        assertThat(workspace.getZeroGradientNorm(param, 0, 2, 1)).isNaN();
+
+        // the workspaces of a pool share the norms
+        SolverWorkspace.Pool pool = new SolverWorkspace.Pool(workspace);
+        pool.take().setZeroGradientNorm(param, 2, 1, 1, 0.5);
+        assertThat(workspace.getZeroGradientNorm(param, 2, 1, 1)).isEqualTo(0.5);
+    }
+
+    @Test
+    void testRowNorms() throws Exception {
+        CsrMatrix matrix = new CsrMatrix(new int[] {0, 2, 3}, new int[] {1, 3, 2}, new double[] {2.0, 3.0, 4.0});
+        SolverWorkspace workspace = new SolverWorkspace();
+
+        double[] norms = workspace.rowNorms(matrix, 2);
+        assertThat(norms).containsExactly(13.0, 16.0);
+        assertThat(workspace.rowNorms(matrix, 2)).isSameAs(norms);
+
+        FeatureMatrix view = matrix.view(new int[] {1});
+        assertThat(workspace.rowNorms(view, 1)).containsExactly(16.0);
+    }
+
+}
@@ -51,6 +51,21 @@ class SparseOperatorTest {
         assertThat(y).containsExactly(1.0 + 1.5 * 2.0, 2.0 + 1.5 * 3.0);
     }
 
+    @Test
+    void testPrimitiveRows() throws Exception {
+        int[] indices = new int[] {1, 2, 4, 2, 3};
+        double[] values = new double[] {1.0, 2.0, 3.0, 4.0, 5.0};
+
+        assertThat(SparseOperator.nrm2_sq(values, 0, 0)).isZero();
+        assertThat(SparseOperator.nrm2_sq(values, 1, 3)).isEqualTo(4 + 9);
+        assertThat(SparseOperator.dot(new double[] {1.0, 2.0, 3.0, 4.0}, indices, values, 0, 3)).isEqualTo(1 + 2 * 2 + 4 * 3);
+        assertThat(SparseOperator.sparse_dot(indices, values, 0, 3, 3, 5)).isEqualTo(2.0 * 4.0);
+
+        double[] y = new double[] {1.0, 2.0, 3.0};
+        SparseOperator.axpy(1.5, indices, values, 3, 5, y);
+        assertThat(y).containsExactly(1.0, 2.0 + 1.5 * 4.0, 3.0 + 1.5 * 5.0);
+    }
+
     private static double[] axpy(double a, Feature[] features) {
         double[] result = new double[features.length];
         SparseOperator.axpy(a, features, result);
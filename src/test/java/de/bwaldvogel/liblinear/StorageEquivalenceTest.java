@@ -0,0 +1,143 @@
+package de.bwaldvogel.liblinear;
+
+import static de.bwaldvogel.liblinear.TestUtils.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+
+/**
+ * The storages of the feature vectors decode the same indices and values and keep the order of the operations,
+ * so the models that are trained with them must be identical to the models of the {@link Feature} arrays.
+ *
+ * @see FloatCsrMatrixTest#testAccuracyDrift()
+ */
+class StorageEquivalenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    enum Storage {
+        CSR, VARINT, DENSE, INDICATOR, MAPPED
+    }
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    private FeatureMatrix convert(Problem prob, Storage storage) throws IOException {
+        switch (storage) {
+            case CSR:
+                return CsrMatrix.fromFeatures(prob.x);
+            case VARINT:
+                return VarintCsrMatrix.fromFeatures(prob.x);
+            case DENSE:
+                return DenseMatrix.fromFeatures(prob.x, prob.n);
+            case INDICATOR:
+                return IndicatorCsrMatrix.copyOf(prob.rows());
+            case MAPPED:
+                Path file = Files.createTempFile(tempDir, "problem", ".bin");
+                prob.writeBinaryFile(file);
+                // chunks of 4 elements, so that rows cross the chunks
+                return BinaryProblemFile.map(file, 2).matrix;
+            default:
+                throw new IllegalArgumentException("Unexpected storage: " + storage);
+        }
+    }
+
+    private static List<Problem> createProblems() throws Exception {
+        List<Problem> problems = new ArrayList<>();
+        problems.add(Train.readProblem(Paths.get("src/test/resources/iris.scale"), 1));
+        problems.add(Train.readProblem(Paths.get("src/test/resources/iris.scale"), -1));
+
+        Random random = new Random(12345);
+        ProblemBuilder sparse = new ProblemBuilder();
+        ProblemBuilder indicator = new ProblemBuilder();
+        for (int i = 0; i < 100; i++) {
+            int label = random.nextInt(3);
+            ProblemBuilder.Row sparseRow = sparse.beginRow(label);
+            ProblemBuilder.Row indicatorRow = indicator.beginRow(label);
+            for (int index = 1; index <= 20; index++) {
+                if (random.nextInt(3) == 0)
+                    sparseRow.add(index, label * 0.3 + random.nextGaussian());
+                if (random.nextInt(3) == label)
+                    indicatorRow.add(index, 1);
+            }
+            sparseRow.end();
+            indicatorRow.end();
+        }
+        problems.add(toFeatures(sparse.build(1)));
+        problems.add(toFeatures(indicator.build(1)));
+        return problems;
+    }
+
+    private static Problem toFeatures(Problem prob) {
+        Problem copy = withMatrix(prob, null);
+        copy.x = new Feature[prob.l][];
+        for (int i = 0; i < prob.l; i++) {
+            copy.x[i] = new Feature[prob.matrix.getRowLength(i)];
+            for (int k = 0; k < copy.x[i].length; k++) {
+                copy.x[i][k] = new FeatureNode(prob.matrix.getIndex(i, k), prob.matrix.getValue(i, k));
+            }
+        }
+        return copy;
+    }
+
+    private static boolean hasOnlyOnes(Problem prob) {
+        for (Feature[] x : prob.x) {
+            for (Feature feature : x) {
+                if (feature.getValue() != 1)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void testTrain(Storage storage) throws Exception {
+        for (Problem prob : createProblems()) {
+            if (storage == Storage.INDICATOR && !hasOnlyOnes(prob)) {
+                continue;
+            }
+            Problem converted = withMatrix(prob, convert(prob, storage));
+
+            for (SolverType solver : SolverType.values()) {
+                // the one-class SVM does not support a bias
+                if (solver.isOneClass() && prob.bias >= 0) {
+                    continue;
+                }
+                Model expected = Linear.train(prob, new Parameter(solver, 1, 0.1));
+                Model model = Linear.train(converted, new Parameter(solver, 1, 0.1));
+                assertThat(model).as("model of " + solver).isEqualTo(expected);
+
+                for (int i = 0; i < prob.l; i++) {
+                    double[] expectedValues = new double[expected.getNrClass()];
+                    double[] values = new double[model.getNrClass()];
+                    assertThat(Linear.predictValues(model, converted.matrix, i, values))
+                        .isEqualTo(Linear.predictValues(expected, prob.x[i], expectedValues));
+                    assertThat(values).isEqualTo(expectedValues);
+                }
+            }
+
+            double[] expectedTarget = new double[prob.l];
+            double[] target = new double[prob.l];
+            Linear.crossValidation(prob, new Parameter(SolverType.L2R_LR, 1, 0.1), 5, expectedTarget);
+            Linear.crossValidation(converted, new Parameter(SolverType.L2R_LR, 1, 0.1), 5, target);
+            assertThat(target).isEqualTo(expectedTarget);
+        }
+    }
+
+}
@@ -22,6 +22,19 @@ final class TestUtils {
         }
     }
 
+    /**
+     * @return a copy of the problem whose feature vectors are stored in the given matrix; the labels are shared
+     */
+    static Problem withMatrix(Problem prob, FeatureMatrix matrix) {
+        Problem copy = new Problem();
+        copy.l = prob.l;
+        copy.n = prob.n;
+        copy.y = prob.y;
+        copy.bias = prob.bias;
+        copy.matrix = matrix;
+        return copy;
+    }
+
     static String repeat(String stringToRepeat, int numTimes) {
         StringBuilder longString = new StringBuilder();
         for (int i = 0; i < numTimes; i++) {
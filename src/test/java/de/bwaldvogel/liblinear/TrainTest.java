@@ -132,6 +132,16 @@ class TrainTest {
         assertThat(parameter.regularize_bias).isTrue();
     }
 
+    @Test
+    void testParseCommandLine_numThreads() throws Exception {
+        Train train = new Train();
+        train.parse_command_line(new String[] {"-m", "4", "model-filename"});
+        assertThat(train.getParameter().getNumThreads()).isEqualTo(4);
+
+        train.parse_command_line(new String[] {"model-filename"});
+        assertThat(train.getParameter().getNumThreads()).isEqualTo(1);
+    }
+
     @Test
     void testReadProblem(@TempDir Path tempDir) throws Exception {
         Path problemPath = tempDir.resolve("problem");
@@ -159,6 +169,56 @@ class TrainTest {
         validate(prob);
     }
 
+    @Test
+    void testReadProblemWithCache(@TempDir Path tempDir) throws Exception {
+        Path problemPath = tempDir.resolve("problem");
+        Path cachePath = tempDir.resolve("problem.cache");
+
+        writeToFile(problemPath, Arrays.asList(
+            "1 1:1  3:1  4:1   6:1",
+            "2 2:1  3:1  5:1   7:1",
+            "1 3:0.5  5:1"));
+
+        Train train = new Train();
+        train.parse_command_line(new String[] {"-B", "1", "-x", cachePath.toString(), problemPath.toString()});
+        assertThat(train.getCacheFilename()).isEqualTo(cachePath.toString());
+
+        train.readProblem(problemPath, cachePath);
+        Problem parsed = train.getProblem();
+        assertThat(cachePath).exists();
+
+        train.readProblem(problemPath, cachePath);
+        Problem cached = train.getProblem();
+        assertThat(cached).isNotSameAs(parsed);
+        assertThat(cached.l).isEqualTo(parsed.l);
+        assertThat(cached.n).isEqualTo(parsed.n);
+        assertThat(cached.bias).isEqualTo(parsed.bias);
+        assertThat(cached.y).isEqualTo(parsed.y);
+        assertThat(((CsrMatrix)cached.matrix).rowPtr).isEqualTo(((CsrMatrix)parsed.matrix).rowPtr);
+        assertThat(((CsrMatrix)cached.matrix).indices).containsExactly(1, 3, 4, 6, 8, 2, 3, 5, 7, 8, 3, 5, 8);
+        assertThat(((CsrMatrix)cached.matrix).values).containsExactly(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0.5, 1, 1);
+
+        // the cache is rewritten if the bias differs
+        train.parse_command_line(new String[] {"-x", cachePath.toString(), problemPath.toString()});
+        train.readProblem(problemPath, cachePath);
+        assertThat(train.getProblem().bias).isEqualTo(-1);
+        assertThat(train.getProblem().n).isEqualTo(7);
+        assertThat(Problem.readBinaryFile(cachePath).bias).isEqualTo(-1);
+    }
+
+    @Test
+    void testTrainWithCache(@TempDir Path tempDir) throws Exception {
+        Path cachePath = tempDir.resolve("iris.cache");
+        Path modelPath = tempDir.resolve("iris.model");
+        Path cachedModelPath = tempDir.resolve("iris-cached.model");
+
+        Train.main(new String[] {"-x", cachePath.toString(), "src/test/resources/iris.scale", modelPath.toString()});
+        assertThat(cachePath).exists();
+        Train.main(new String[] {"-x", cachePath.toString(), "src/test/resources/iris.scale", cachedModelPath.toString()});
+
+        assertThat(Linear.loadModel(cachedModelPath)).isEqualTo(Linear.loadModel(modelPath));
+    }
+
     @Test
     void testReadProblemFromStream() throws Exception {
         String data = "1 1:1  3:1  4:1   6:1\n"
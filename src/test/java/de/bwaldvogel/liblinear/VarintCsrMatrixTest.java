@@ -0,0 +1,104 @@
+package de.bwaldvogel.liblinear;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+class VarintCsrMatrixTest {
+
+    @BeforeEach
+    public void reset() throws Exception {
+        Linear.disableDebugOutput();
+    }
+
+    @Test
+    void testFromFeatures() throws Exception {
+        Feature[][] x = new Feature[][] {
+            {new FeatureNode(2, 0.1), new FeatureNode(3, 0.2), new FeatureNode(6, 1), new FeatureNode(200, 2)},
+            {},
+            {new FeatureNode(1, 0.4), new FeatureNode(20000, 1), new FeatureNode(Integer.MAX_VALUE, 3)},
+        };
+
+        VarintCsrMatrix matrix = VarintCsrMatrix.fromFeatures(x);
+
+        assertThat(matrix.getNumRows()).isEqualTo(3);
+        assertThat(matrix.getNumNonZeros()).isEqualTo(7);
+        assertThat(matrix.getNumIndexBytes()).isEqualTo(5 + 1 + 3 + 5);
+        assertThat(matrix.rowPtr).containsExactly(0, 4, 4, 7);
+        assertThat(matrix.bytePtr).containsExactly(0, 5, 5, 14);
+        assertThat(matrix.indexBytes).startsWith((byte)0x02, (byte)0x01, (byte)0x03, (byte)0xc2, (byte)0x01);
+        assertThat(matrix.values).containsExactly(0.1, 0.2, 1, 2, 0.4, 1, 3);
+
+        for (int i = 0; i < x.length; i++) {
+            assertThat(matrix.getRowLength(i)).isEqualTo(x[i].length);
+            for (int k = 0; k < x[i].length; k++) {
+                assertThat(matrix.getIndex(i, k)).isEqualTo(x[i][k].getIndex());
+                assertThat(matrix.getValue(i, k)).isEqualTo(x[i][k].getValue());
+            }
+        }
+    }
+
+    @Test
+    void testKernels() throws Exception {
+        CsrMatrix expected = new CsrMatrix(new int[] {0, 3, 5, 5}, new int[] {1, 130, 300, 2, 130}, new double[] {2.0, 3.0, 4.0, 5.0, 6.0});
+        VarintCsrMatrix matrix = VarintCsrMatrix.copyOf(expected);
+
+        double[] s = new double[300];
+        for (int i = 0; i < s.length; i++)
+            s[i] = i * 0.5;
+
+        for (int row = 0; row < 3; row++) {
+            assertThat(matrix.nrm2_sq(row)).isEqualTo(expected.nrm2_sq(row));
+            assertThat(matrix.dot(row, s)).isEqualTo(expected.dot(row, s));
+            for (int row2 = 0; row2 < 3; row2++) {
+                assertThat(matrix.sparse_dot(row, row2)).isEqualTo(expected.sparse_dot(row, row2));
+            }
+
+            double[] y = new double[300];
+            double[] expectedY = new double[300];
+            matrix.axpy(0.5, row, y);
+            expected.axpy(0.5, row, expectedY);
+            assertThat(y).containsExactly(expectedY);
+
+            int[] indices = matrix.getIndices(row, new int[1]);
+            for (int k = 0; k < matrix.getRowLength(row); k++) {
+                assertThat(indices[k]).isEqualTo(expected.getIndex(row, k));
+            }
+
+            // the feature 300 exceeds the dimension n = 200 of the model
+            double[] w = new double[2 * 300];
+            for (int i = 0; i < w.length; i++)
+                w[i] = i * 0.25;
+            double[] decValues = new double[2];
+            double[] expectedDecValues = new double[2];
+            matrix.addDecisionValues(row, w, 200, 2, decValues);
+            expected.addDecisionValues(row, w, 200, 2, expectedDecValues);
+            assertThat(decValues).containsExactly(expectedDecValues);
+        }
+        assertThat(matrix.sparse_dot(0, 1)).isEqualTo(3.0 * 6.0);
+        assertThat(matrix.getIndices(0, null)).containsExactly(1, 130, 300);
+    }
+
+    @Test
+    void testSelect() throws Exception {
+        VarintCsrMatrix matrix = VarintCsrMatrix.copyOf(new CsrMatrix(new int[] {0, 2, 3, 3}, new int[] {1, 300, 2}, new double[] {2.0, 3.0, 4.0}));
+
+        VarintCsrMatrix selected = matrix.select(new int[] {1, 0, 1, 2});
+
+        assertThat(selected.rowPtr).containsExactly(0, 1, 3, 4, 4);
+        assertThat(selected.bytePtr).containsExactly(0, 1, 4, 5, 5);
+        assertThat(selected.values).containsExactly(4.0, 2.0, 3.0, 4.0);
+        assertThat(selected.getIndex(1, 1)).isEqualTo(300);
+        assertThat(selected.getIndex(2, 0)).isEqualTo(2);
+    }
+
+    @Test
+    void testUnsortedIndices() throws Exception {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> VarintCsrMatrix.copyOf(new CsrMatrix(new int[] {0, 2}, new int[] {3, 1}, new double[] {1, 1})))
+            .withMessage("indices must be sorted in ascending order");
+    }
+
+}